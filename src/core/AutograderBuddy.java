@@ -1,9 +1,12 @@
 package core;
 
 import tileengine.TETile;
+import tileengine.TileProperties;
 import tileengine.Tileset;
 
 public class AutograderBuddy {
+    /** Games part way through earlier inputs, so inputs that start the same way are not replayed from scratch */
+    private static final ReplayCache REPLAYS = new ReplayCache();
 
     /**
      * Simulates a game, but doesn't render anything or call any StdDraw
@@ -18,6 +21,7 @@ public class AutograderBuddy {
      * @return the 2D TETile[][] representing the state of the world
      */
     public static TETile[][] getWorldFromInput(String input) {
+        input = input.toUpperCase();
         char option = input.charAt(0);
         StringBuilder seedString = new StringBuilder();
         StringBuilder remainingInput = new StringBuilder();
@@ -33,77 +37,52 @@ public class AutograderBuddy {
             }
             seed = Long.parseLong(seedString.toString());
         } else if (option == 'L') {
+            // a loaded game depends on the save file rather than the input, so it is never cached
             remainingInput.append(input.substring(1));
-            CreateWorldFeatures loadedWorld = CreateWorldFeatures.loadWorld();
+            WorldState loadedWorld = WorldState.loadWorld();
             if (loadedWorld != null) {
-                return processMovement(loadedWorld, remainingInput.toString());
+                String moves = movesBeforeQuit(remainingInput.toString());
+                loadedWorld.move(moves, 0, moves.length());
+                return finish(loadedWorld, moves.length() < remainingInput.length());
             } else {
                 throw new IllegalArgumentException("No saved world exists.");
             }
         }
         TETile avatar = Tileset.HEART;
         String resource = "Cotton Candy";
-        CreateWorldFeatures world = new CreateWorldFeatures(seed, avatar, resource);
-        return processMovement(world, remainingInput.toString());
+        String moves = movesBeforeQuit(remainingInput.toString());
+        WorldState world = REPLAYS.replay(seed, avatar, resource, moves);
+        return finish(world, moves.length() < remainingInput.length());
     }
 
-    /**
-     * Helper method to process remaining input for the generated world.
-     *
-     * @param world generated from string or load
-     * @param movement remaining actions
-     * @return the 2D TETile[][] representing the state of the world
-     */
-    private static TETile[][] processMovement(CreateWorldFeatures world, String movement) {
-        TETile[][] worldTiles = world.getWorld();
-        Avatar avatar = world.getAvatar();
+    /** Returns the moves typed before ":Q", or all of them if the game is never quit */
+    private static String movesBeforeQuit(String movement) {
+        int quit = movement.indexOf(":Q");
+        return quit < 0 ? movement : movement.substring(0, quit);
+    }
 
-        for (int i = 0; i < movement.length(); i++) {
-            char key = movement.charAt(i);
-            switch (key) {
-                case 'W':
-                    avatar.moveUp(worldTiles);
-                    break;
-                case 'A':
-                    avatar.moveLeft(worldTiles);
-                    break;
-                case 'S':
-                    avatar.moveDown(worldTiles);
-                    break;
-                case 'D':
-                    avatar.moveRight(worldTiles);
-                    break;
-                case ':':
-                    if (i + 1 < movement.length() && movement.charAt(i + 1) == 'Q') {
-                        world.saveWorld();
-                        return worldTiles;
-                    }
-                    break;
-                default:
-                    break;
-            }
+    /** Saves the game if it was quit, and returns its tiles */
+    private static TETile[][] finish(WorldState world, boolean quit) {
+        if (quit) {
+            world.saveWorld();
         }
-        return worldTiles;
+        return world.getGrid().toArray();
     }
 
     /**
      * Used to tell the autograder which tiles are the floor/ground (including
-     * any lights/items resting on the ground). Change this
-     * method if you add additional tiles.
+     * any lights/items resting on the ground). Register additional tiles
+     * in TileProperties.
      */
     public static boolean isGroundTile(TETile t) {
-        return t.character() == Tileset.FLOOR.character()
-                || t.character() == Tileset.HEART.character()
-                || t.character() == Tileset.FLOWER.character();
+        return TileProperties.isGround(t);
     }
 
     /**
-     * Used to tell the autograder while tiles are the walls/boundaries. Change
-     * this method if you add additional tiles.
+     * Used to tell the autograder while tiles are the walls/boundaries. Register
+     * additional tiles in TileProperties.
      */
     public static boolean isBoundaryTile(TETile t) {
-        return t.character() == Tileset.WALL.character()
-                || t.character() == Tileset.LOCKED_DOOR.character()
-                || t.character() == Tileset.UNLOCKED_DOOR.character();
+        return TileProperties.isBoundary(t);
     }
 }
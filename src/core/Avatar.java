@@ -17,57 +17,48 @@ public class Avatar implements Serializable {
     }
 
     /** Ensures the avatar does not move out of the world's bounds or onto a wall */
-    public boolean isValidMove(int x, int y, TETile[][] world) {
-        if (x >= 0 && x < world.length && y >= 0 && y < world[0].length) {
-            TETile targetTile = world[x][y];
-            return targetTile.equals(Tileset.TREE) || targetTile.equals(Tileset.GRASS)
-                    || targetTile.equals(Tileset.SAND)
-                    || targetTile.equals(Tileset.FLOWER) || targetTile.equals(Tileset.FLOOR);
-        }
-        return false;
+    public boolean isValidMove(int x, int y, TileGrid world) {
+        return world.inBounds(x, y) && TileProperties.isWalkable(world.get(x, y));
     }
 
     /** Move the avatar up one tile */
-    public void moveUp(TETile[][] world) {
-        int newY = yPosition + 1;
-        if (isValidMove(xPosition, newY, world)) {
-            world[xPosition][yPosition] = previousTile;
-            previousTile = world[xPosition][newY];
-            yPosition = newY;
-            world[xPosition][yPosition] = character;
-        }
+    public void moveUp(TileGrid world) {
+        move(0, 1, 1, world);
     }
 
     /** Move the avatar down one tile */
-    public void moveDown(TETile[][] world) {
-        int newY = yPosition - 1;
-        if (isValidMove(xPosition, newY, world)) {
-            world[xPosition][yPosition] = previousTile;
-            previousTile = world[xPosition][newY];
-            yPosition = newY;
-            world[xPosition][yPosition] = character;
-        }
+    public void moveDown(TileGrid world) {
+        move(0, -1, 1, world);
     }
 
     /** Move the avatar left one tile */
-    public void moveLeft(TETile[][] world) {
-        int newX = xPosition - 1;
-        if (isValidMove(newX, yPosition, world)) {
-            world[xPosition][yPosition] = previousTile;
-            previousTile = world[newX][yPosition];
-            xPosition = newX;
-            world[xPosition][yPosition] = character;
-        }
+    public void moveLeft(TileGrid world) {
+        move(-1, 0, 1, world);
     }
 
     /** Move the avatar right one tile */
-    public void moveRight(TETile[][] world) {
-        int newX = xPosition + 1;
-        if (isValidMove(newX, yPosition, world)) {
-            world[xPosition][yPosition] = previousTile;
-            previousTile = world[newX][yPosition];
+    public void moveRight(TileGrid world) {
+        move(1, 0, 1, world);
+    }
+
+    /**
+     * Moves the avatar up to the given number of tiles in one direction, stopping in front of the first tile
+     * it cannot walk onto. This ends the same as moving one tile at a time, but only the tile the avatar
+     * leaves and the tile it ends on are written.
+     */
+    public void move(int dx, int dy, int steps, TileGrid world) {
+        int newX = xPosition;
+        int newY = yPosition;
+        for (int i = 0; i < steps && isValidMove(newX + dx, newY + dy, world); i++) {
+            newX += dx;
+            newY += dy;
+        }
+        if (newX != xPosition || newY != yPosition) {
+            world.set(xPosition, yPosition, previousTile);
+            previousTile = world.get(newX, newY);
             xPosition = newX;
-            world[xPosition][yPosition] = character;
+            yPosition = newY;
+            world.set(xPosition, yPosition, character);
         }
     }
 
@@ -82,4 +73,14 @@ public class Avatar implements Serializable {
     public TETile getCharacter() {
         return character;
     }
+
+    /** Returns the tile under the avatar, which is put back when it moves away */
+    public TETile getPreviousTile() {
+        return previousTile;
+    }
+
+    /** Returns an avatar in the same position and state that moves independently of this one */
+    public Avatar copy() {
+        return new Avatar(xPosition, yPosition, previousTile, character);
+    }
 }
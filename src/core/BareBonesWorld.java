@@ -10,138 +10,196 @@ public class BareBonesWorld implements Serializable {
     private final int WIDTH;
     private final int HEIGHT;
     private final Random RANDOM;
-    private final TETile[][] WORLD;
+    private final TileGrid WORLD;
+    /** Palette indices in WORLD of the resource pack's room floor, wall, hallway and empty tiles */
+    private final int ROOM_FLOOR;
+    private final int WALL;
+    private final int HALLWAY;
+    private final int NOTHING;
     private static final int MIN_ROOMS = 20;
-    private static final int HEADER_SIZE = 2;
+    private static final int DEFAULT_HEADER_SIZE = 2;
     private static final int MAX_FAILED_ATTEMPTS = 40;
+    /** Number of nearby starts in other rooms that each start is offered as hallway candidates */
+    private static final int MST_CANDIDATES = 6;
+    /*
+     * The tiles below are stored as packed cell indices (x * HEIGHT + y) rather than as Points, so that
+     * generating a world does not allocate an object for every tile it looks at.
+     */
     /** Keeps track of all tiles that comprise the floors of rooms */
-    private final List<Point> ALL_ROOM_FLOORS = new ArrayList<>();
+    private final IntList ALL_ROOM_FLOORS = new IntList();
     /** Keeps track of all the tiles that are the starts of hallways */
-    private final Set<Point> HALLWAY_STARTS = new HashSet<>();
+    private final IntHashSet HALLWAY_STARTS = new IntHashSet();
     /** Keeps track of all the tiles that are hallway floors so walls can be put up around them */
-    private final Set<Point> HALLWAY_FLOORS = new HashSet<>();
+    private final IntHashSet HALLWAY_FLOORS = new IntHashSet();
     /** Connects singular rooms together to ensure no hallways just connect the room together */
-    private final HallwayUnion ALL_ROOMS = new HallwayUnion();
+    private final HallwayUnion ALL_ROOMS;
+    /** Number of groups of rooms that are not yet connected to each other by hallways */
+    private int roomComponents = 0;
     /** Keeps track of all hallwayStarts that end up being dead ends */
-    private final Set<Point> DEAD_ENDS = new HashSet<>();
+    private final IntHashSet DEAD_ENDS = new IntHashSet();
     private final ArrayList<TETile> RESOURCE_PACK;
+    /** Routes hallways between hallway starts, reusing its buffers for every route */
+    private final transient HallwayRouter ROUTER;
+    /** Tiles already taken by rooms, so that placing a room can be validated without rescanning WORLD */
+    private final transient OccupancyGrid OCCUPANCY;
+    private final HallwayStrategy HALLWAY_STRATEGY;
+    /** Chance that a hallway which would close a loop between already connected rooms is built anyway */
+    private final double EXTRA_HALLWAYS;
+    /** Rows at the top of the world that are kept empty for the header */
+    private final int HEADER_SIZE;
+    /**
+     * Tiles on the world's edge that hallways must reach, so that they line up with a neighbouring world.
+     * Only read while the world is generated, so it is not serialized.
+     */
+    private final transient List<Point> PORTALS;
 
     public BareBonesWorld(long seed, int width, int height, ArrayList<TETile> resource) {
+        this(seed, width, height, resource, HallwayStrategy.LEGACY, 0);
+    }
+
+    public BareBonesWorld(long seed, int width, int height, ArrayList<TETile> resource,
+                          HallwayStrategy strategy, double extraHallways) {
+        this(seed, width, height, resource, strategy, extraHallways, DEFAULT_HEADER_SIZE, List.of());
+    }
+
+    /**
+     * Creates one region of a larger map. Each portal is a tile on the region's edge that is opened up and
+     * joined to the region's rooms by a hallway, so that it meets the matching portal of the neighbouring
+     * region. Rooms are kept at least 5 tiles away from the portals.
+     */
+    BareBonesWorld(long seed, int width, int height, ArrayList<TETile> resource, HallwayStrategy strategy,
+                   double extraHallways, int headerSize, List<Point> portals) {
         this.RANDOM = new Random(seed);
         this.WIDTH = width;
         this.HEIGHT = height;
         this.RESOURCE_PACK = resource;
-        this.WORLD = new TETile[WIDTH][HEIGHT];
+        this.WORLD = new TileGrid(WIDTH, HEIGHT, RESOURCE_PACK.getLast());
+        this.NOTHING = WORLD.paletteIndexOf(RESOURCE_PACK.getLast());
+        this.ROOM_FLOOR = WORLD.paletteIndexOf(RESOURCE_PACK.get(0));
+        this.WALL = WORLD.paletteIndexOf(RESOURCE_PACK.get(1));
+        this.HALLWAY = WORLD.paletteIndexOf(RESOURCE_PACK.get(2));
+        this.ALL_ROOMS = new HallwayUnion(WIDTH, HEIGHT);
+        this.ROUTER = new HallwayRouter(WIDTH, HEIGHT, this::isValidHall);
+        this.OCCUPANCY = new OccupancyGrid(WIDTH, HEIGHT);
+        this.HALLWAY_STRATEGY = strategy;
+        this.EXTRA_HALLWAYS = extraHallways;
+        this.HEADER_SIZE = headerSize;
+        this.PORTALS = portals;
     }
 
     /** Create the world with its randomly generated rooms and hallways */
     public TETile[][] initializeWorld() {
-        fillWorldWithNothing();
+        return initializeGrid().toArray();
+    }
+
+    /** Create the world with its randomly generated rooms and hallways, as a compact TileGrid */
+    public TileGrid initializeGrid() {
+        createPortals();
         generateRooms();
         generateHallways();
         return WORLD;
     }
 
-    /** Create the world with all tiles to have nothing on them */
-    private void fillWorldWithNothing() {
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                WORLD[x][y] = RESOURCE_PACK.getLast();
-            }
-        }
-    }
-
     /** Creates the room's floor, accounting for the border of both the walls and world */
     private void createFloor(int xCorner, int yCorner, int floorWidth, int floorHeight) {
         for (int x = xCorner; x <= xCorner + floorWidth; x++) {
             for (int y = yCorner; y <= yCorner + floorHeight; y++) {
-                WORLD[x][y] = RESOURCE_PACK.getFirst();
-                ALL_ROOM_FLOORS.add(new Point(x, y));
+                WORLD.setPaletteIndex(x, y, ROOM_FLOOR);
+                ALL_ROOM_FLOORS.add(cell(x, y));
             }
         }
+        OCCUPANCY.occupy(xCorner, yCorner, xCorner + floorWidth, yCorner + floorHeight);
     }
 
     /** Returns a list of all the tiles that comprise the floors of the rooms */
     public List<Point> getAllRoomFloors() {
-        return ALL_ROOM_FLOORS;
+        List<Point> roomFloors = new ArrayList<>(ALL_ROOM_FLOORS.size());
+        for (int i = 0; i < ALL_ROOM_FLOORS.size(); i++) {
+            roomFloors.add(new Point(ALL_ROOM_FLOORS.get(i) / HEIGHT, ALL_ROOM_FLOORS.get(i) % HEIGHT));
+        }
+        return roomFloors;
+    }
+
+    /** Packs the coordinates of a tile into a single cell index */
+    private int cell(int x, int y) {
+        return x * HEIGHT + y;
     }
 
     /** Creates the room's walls, accounting for the border of the world */
     private void createWall(int xCorner, int yCorner, int floorWidth, int floorHeight) {
-        Set<Point> roomBorder = new HashSet<>(); // all tiles that make up the room's wall
-        ArrayList<Point> nonBorderTiles = new ArrayList<>(); // all valid tiles that can be a hallway
+        IntHashSet roomBorder = new IntHashSet(); // all tiles that make up the room's wall
+        IntList nonBorderTiles = new IntList(); // all valid tiles that can be a hallway
         int newX = xCorner + floorWidth;
         int newY = yCorner + floorHeight;
         for (int x = xCorner - 1; x <= newX + 1; x++) {
             for (int y = yCorner - 1; y <= newY + 1; y++) {
-                if (WORLD[x][y] == RESOURCE_PACK.getLast()) {
+                if (WORLD.paletteIndex(x, y) == NOTHING) {
                     // creates the walls of the room
-                    WORLD[x][y] = RESOURCE_PACK.get(1);
+                    WORLD.setPaletteIndex(x, y, WALL);
 
                     // add all tiles that aren't 3 tiles from the world's border or in a room's corner into a list
-                    if (x >= 3 && y >= 3 && x < WORLD.length - 3 && y < WORLD[0].length - 3) {
+                    if (x >= 3 && y >= 3 && x < WIDTH - 3 && y < HEIGHT - 3) {
                         if (!((x == xCorner - 1 || x == newX + 1) && (y == yCorner - 1 || y == newY + 1))) {
-                            nonBorderTiles.add(new Point(x, y));
+                            nonBorderTiles.add(cell(x, y));
                         }
                     }
 
                     // connects all the room's walls into a singular disjoint set
-                    roomBorder.add(new Point(x, y));
-                    if (x < WORLD.length - 1 && roomBorder.contains(new Point(x + 1, y))) {
-                        ALL_ROOMS.union(new Point(x, y), new Point(x + 1, y));
+                    roomBorder.add(cell(x, y));
+                    if (x < WIDTH - 1 && roomBorder.contains(cell(x + 1, y))) {
+                        ALL_ROOMS.union(cell(x, y), cell(x + 1, y));
                     }
-                    if (y < WORLD[0].length - 1 && roomBorder.contains(new Point(x, y + 1))) {
-                        ALL_ROOMS.union(new Point(x, y), new Point(x, y + 1));
+                    if (y < HEIGHT - 1 && roomBorder.contains(cell(x, y + 1))) {
+                        ALL_ROOMS.union(cell(x, y), cell(x, y + 1));
                     }
-                    if (x >= 1 && roomBorder.contains(new Point(x - 1, y))) {
-                        ALL_ROOMS.union(new Point(x, y), new Point(x - 1, y));
+                    if (x >= 1 && roomBorder.contains(cell(x - 1, y))) {
+                        ALL_ROOMS.union(cell(x, y), cell(x - 1, y));
                     }
-                    if (y >= 1 && roomBorder.contains(new Point(x, y - 1))) {
-                        ALL_ROOMS.union(new Point(x, y), new Point(x, y - 1));
+                    if (y >= 1 && roomBorder.contains(cell(x, y - 1))) {
+                        ALL_ROOMS.union(cell(x, y), cell(x, y - 1));
                     }
                 }
             }
         }
+        OCCUPANCY.occupy(xCorner - 1, yCorner - 1, newX + 1, newY + 1);
         createHallwayStart(nonBorderTiles);
     }
 
     /** Designates 1-3 random tiles from the wall to be the starting point of a hallway */
-    private void createHallwayStart(ArrayList<Point> nonBorderTiles) {
-        List<Point> allRoomStarts = new ArrayList<>();
+    private void createHallwayStart(IntList nonBorderTiles) {
         // create the first opening to a hallway in a room
-        Point entryOne = nonBorderTiles.get(RandomUtils.uniform(RANDOM, 0, nonBorderTiles.size()));
+        int entryOne = nonBorderTiles.get(RandomUtils.uniform(RANDOM, 0, nonBorderTiles.size()));
+        int entryTwo = -1;
         HALLWAY_STARTS.add(entryOne);
-        allRoomStarts.add(entryOne);
-        WORLD[entryOne.getX()][entryOne.getY()] = RESOURCE_PACK.get(2);
+        WORLD.setPaletteIndex(entryOne / HEIGHT, entryOne % HEIGHT, HALLWAY);
 
         // create a second opening if the hallway is not opened from the same spot or the spot next to it
         for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
-            Point entryTwo = nonBorderTiles.get(RandomUtils.uniform(RANDOM, 0, nonBorderTiles.size()));
-            if (!entryTwo.equals(entryOne) && isGoodDist(entryOne, entryTwo)) {
+            int candidate = nonBorderTiles.get(RandomUtils.uniform(RANDOM, 0, nonBorderTiles.size()));
+            if (candidate != entryOne && isGoodDist(entryOne, candidate)) {
+                entryTwo = candidate;
                 HALLWAY_STARTS.add(entryTwo);
-                allRoomStarts.add(entryTwo);
                 ALL_ROOMS.union(entryOne, entryTwo);
-                WORLD[entryTwo.getX()][entryTwo.getY()] = RESOURCE_PACK.get(2);
+                WORLD.setPaletteIndex(entryTwo / HEIGHT, entryTwo % HEIGHT, HALLWAY);
                 break;
             }
         }
 
         for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
-            Point entryThree = nonBorderTiles.get(RandomUtils.uniform(RANDOM, 0, nonBorderTiles.size()));
-            if (!entryThree.equals(entryOne) && isGoodDist(entryOne, entryThree)) {
-                if (allRoomStarts.size() > 1) {
-                    Point entryTwo = allRoomStarts.get(1);
-                    if (!entryThree.equals(entryTwo) && isGoodDist(entryTwo, entryThree)) {
+            int entryThree = nonBorderTiles.get(RandomUtils.uniform(RANDOM, 0, nonBorderTiles.size()));
+            if (entryThree != entryOne && isGoodDist(entryOne, entryThree)) {
+                if (entryTwo >= 0) {
+                    if (entryThree != entryTwo && isGoodDist(entryTwo, entryThree)) {
                         HALLWAY_STARTS.add(entryThree);
                         ALL_ROOMS.union(entryOne, entryThree);
                         ALL_ROOMS.union(entryTwo, entryThree);
-                        WORLD[entryThree.getX()][entryThree.getY()] = RESOURCE_PACK.get(2);
+                        WORLD.setPaletteIndex(entryThree / HEIGHT, entryThree % HEIGHT, HALLWAY);
                         break;
                     }
                 } else {
                     HALLWAY_STARTS.add(entryThree);
                     ALL_ROOMS.union(entryOne, entryThree);
-                    WORLD[entryThree.getX()][entryThree.getY()] = RESOURCE_PACK.get(2);
+                    WORLD.setPaletteIndex(entryThree / HEIGHT, entryThree % HEIGHT, HALLWAY);
                     break;
                 }
             }
@@ -149,43 +207,31 @@ public class BareBonesWorld implements Serializable {
     }
 
     /** Ensures all hallwayStarts have at least a 1 tile gap between them */
-    private boolean isGoodDist(Point entryOne, Point entryTwo) {
-        return (Math.abs(entryTwo.getX() - entryOne.getX()) > 1
-                && (Math.abs(entryTwo.getY() - entryOne.getY()) > 1));
+    private boolean isGoodDist(int entryOne, int entryTwo) {
+        return (Math.abs(entryTwo / HEIGHT - entryOne / HEIGHT) > 1
+                && (Math.abs(entryTwo % HEIGHT - entryOne % HEIGHT) > 1));
     }
 
-    /** Finds and designates the closest tile in getHallwayStarts that is not from the same room to be a hallway */
-    private Point leastDistance(Point tile, Set<Point> hallwayStarts) {
-        Map<Double, Point> distance = new TreeMap<>();
-        // sort all the tiles from least to greatest distance
-        for (Point allTiles : hallwayStarts) {
-            if (!ALL_ROOMS.connected(tile, allTiles)) {
-                double xCoord = Math.pow(Math.abs(tile.getX() - allTiles.getX()), 2);
-                double yCoord = Math.pow(Math.abs(tile.getY() - allTiles.getY()), 2);
-                double distances = Math.pow((xCoord + yCoord), 0.5);
-                distance.put(distances, allTiles);
-            }
-        }
+    /** Finds and designates the closest tile in the index that is not from the same room to be a hallway */
+    private int leastDistance(int tile, HallwayStartIndex hallwayStarts) {
+        return hallwayStarts.nearestUnconnected(tile, ALL_ROOMS);
+    }
 
-        // return a valid tile that is the closest to the given tile
-        for (Map.Entry<Double, Point> least : distance.entrySet()) {
-            return least.getValue();
+    /** Opens the portals on the world's edge as hallway starts that each begin their own group of rooms */
+    private void createPortals() {
+        for (Point portal : PORTALS) {
+            WORLD.setPaletteIndex(portal.getX(), portal.getY(), HALLWAY);
+            OCCUPANCY.occupy(portal.getX(), portal.getY(), portal.getX(), portal.getY());
+            if (HALLWAY_STARTS.add(cell(portal.getX(), portal.getY()))) {
+                roomComponents++;
+            }
         }
-        return null;
     }
 
     /** Ensures that two rooms do not overlap and have at least a 4 tile gap between them for hallways */
     private boolean isValidRoom(int xCorner, int yCorner, int floorWidth, int floorHeight) {
-        for (int x = xCorner - 5; x <= xCorner + floorWidth + 5; x++) {
-            for (int y = yCorner - 5; y <= yCorner + floorHeight + 5; y++) {
-                if (x >= 0 && y >= 0 && x < WORLD.length && y < HEIGHT - HEADER_SIZE) { // if within boundaries
-                    if (WORLD[x][y] != RESOURCE_PACK.getLast()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return OCCUPANCY.isEmpty(xCorner - 5, yCorner - 5, xCorner + floorWidth + 5,
+                Math.min(yCorner + floorHeight + 5, HEIGHT - HEADER_SIZE - 1));
     }
 
     /** Creates the room with floors and walls */
@@ -193,6 +239,7 @@ public class BareBonesWorld implements Serializable {
         if (isValidRoom(xCorner, yCorner, floorWidth, floorHeight)) {
             createFloor(xCorner, yCorner, floorWidth, floorHeight);
             createWall(xCorner, yCorner, floorWidth, floorHeight);
+            roomComponents++;
         }
     }
 
@@ -217,110 +264,49 @@ public class BareBonesWorld implements Serializable {
 
     /** Ensures that two hallways do not go through rooms and leave enough space for its walls  */
     private boolean isValidHall(int currX, int currY) {
-        TETile wall = RESOURCE_PACK.get(1);
-        TETile roomFloor = RESOURCE_PACK.get(0);
-        if (currX < 1 || currX >= WORLD.length - 1 || currY < 1 || currY >= HEIGHT - HEADER_SIZE - 1) {
+        if (currX < 1 || currX >= WIDTH - 1 || currY < 1 || currY >= HEIGHT - HEADER_SIZE - 1) {
             return false;
-        } else if (WORLD[currX + 1][currY] == wall || WORLD[currX + 1][currY] == roomFloor
-                || WORLD[currX - 1][currY] == wall || WORLD[currX - 1][currY] == roomFloor
-                || WORLD[currX][currY + 1] == wall || WORLD[currX][currY + 1] == roomFloor
-                || WORLD[currX][currY - 1] == wall || WORLD[currX][currY - 1] == roomFloor) {
+        } else if (isRoomTile(currX + 1, currY) || isRoomTile(currX - 1, currY)
+                || isRoomTile(currX, currY + 1) || isRoomTile(currX, currY - 1)) {
             return false;
         } else {
-            return WORLD[currX][currY] == RESOURCE_PACK.getLast();
+            return WORLD.paletteIndex(currX, currY) == NOTHING;
         }
     }
 
-    /** Plans out the hallways that would connect two hallway starts together */
-    private Set<Point> planHallwayFloors(int currX, int currY, int targetX, int targetY) {
-        Set<Point> plannedHalls = new HashSet<>();
-        while (currX != targetX || currY != targetY) {
-            if (currX < targetX && isValidHall(currX + 1, currY)
-                    && !plannedHalls.contains(new Point(currX + 1, currY))) {
-                currX++;
-            } else if (currX > targetX && isValidHall(currX - 1, currY)
-                    && !plannedHalls.contains(new Point(currX - 1, currY))) {
-                currX--;
-            } else if (currY < targetY && isValidHall(currX, currY + 1)
-                    && !plannedHalls.contains(new Point(currX, currY + 1))) {
-                currY++;
-            } else if (currY > targetY && isValidHall(currX, currY - 1)
-                    && !plannedHalls.contains(new Point(currX, currY - 1))) {
-                currY--;
-            } else {
-                Point other = makeTurnOrAdvance(currX, currY, targetX, targetY, plannedHalls);
-                if (other == null || plannedHalls.contains(other)) {
-                    break;
-                }
-                currX = other.getX();
-                currY = other.getY();
-            }
-            plannedHalls.add(new Point(currX, currY));
-        }
-        addTarget(plannedHalls, targetX, targetY);
-        return plannedHalls;
+    /** Checks if the tile is part of a room's wall or floor */
+    private boolean isRoomTile(int x, int y) {
+        int tile = WORLD.paletteIndex(x, y);
+        return tile == WALL || tile == ROOM_FLOOR;
     }
 
-    /** Makes a turn or advance forward as needed when creating a hallway */
-    private Point makeTurnOrAdvance(int currX, int currY, int targetX, int targetY, Set<Point> plan) {
-        if (currX != targetX) {
-            if (isValidHall(currX, currY + 1) && !plan.contains(new Point(currX, currY + 1))) {
-                return new Point(currX, currY + 1);
-            } else if (isValidHall(currX, currY - 1) && !plan.contains(new Point(currX, currY - 1))) {
-                return new Point(currX, currY - 1);
-            }
-        } else if (currY != targetY) {
-            if (isValidHall(currX + 1, currY) && !plan.contains(new Point(currX + 1, currY))) {
-                return new Point(currX + 1, currY);
-            } else if (isValidHall(currX - 1, currY) && !plan.contains(new Point(currX - 1, currY))) {
-                return new Point(currX - 1, currY);
-            }
+    /** Plans out the shortest hallway that connects two hallway starts, returning false if there is none */
+    private boolean planHallwayFloors(int currX, int currY, int targetX, int targetY) {
+        int length = ROUTER.route(currX, currY, targetX, targetY);
+        if (length <= 0) {
+            return false;
         }
-        return null;
-    }
-
-    /** Adds the target tile into plannedHalls if the hallway is fully connected */
-    private void addTarget(Set<Point> plannedHalls, int targetX, int targetY) {
-        if (!plannedHalls.contains(new Point(targetX, targetY))) {
-            Set<Point> surroundingTargetTile = new HashSet<>();
-            if (isValidHall(targetX + 1, targetY)) {
-                surroundingTargetTile.add(new Point(targetX + 1, targetY));
-            }
-            if (isValidHall(targetX - 1, targetY)) {
-                surroundingTargetTile.add(new Point(targetX - 1, targetY));
-            }
-            if (isValidHall(targetX, targetY + 1)) {
-                surroundingTargetTile.add(new Point(targetX, targetY + 1));
-            }
-            if (isValidHall(targetX, targetY - 1)) {
-                surroundingTargetTile.add(new Point(targetX, targetY - 1));
-            }
-
-            for (Point tile : surroundingTargetTile) {
-                if (plannedHalls.contains(tile)) {
-                    plannedHalls.add(new Point(targetX, targetY));
-                    break;
-                }
-            }
+        for (int i = 0; i < length; i++) {
+            HALLWAY_FLOORS.add(ROUTER.pathCell(i));
         }
+        HALLWAY_FLOORS.add(cell(currX, currY));
+        return true;
     }
 
     /** Ensures that only the hallways that are not dead ends will be created */
-    private void weedOutPlannedDeadEnds(Set<Point> hallwayStarts, Set<Point> deadEnds) {
-        for (Point tile : hallwayStarts) {
-            int currX = tile.getX();
-            int currY = tile.getY();
-            Point target = leastDistance(tile, hallwayStarts);
-            if (target == null) {
+    private void weedOutPlannedDeadEnds(IntHashSet hallwayStarts, IntHashSet deadEnds) {
+        int[] starts = hallwayStarts.toArray();
+        HallwayStartIndex index = new HallwayStartIndex(starts, WIDTH, HEIGHT);
+        for (int tile : starts) {
+            int target = leastDistance(tile, index);
+            if (target < 0) {
                 deadEnds.add(tile);
                 continue;
             }
-            int targetX = target.getX();
-            int targetY = target.getY();
-            Set<Point> plannedHallway = planHallwayFloors(currX, currY, targetX, targetY);
-            if (plannedHallway.contains(target)) {
-                HALLWAY_FLOORS.addAll(plannedHallway);
-                ALL_ROOMS.union(tile, target);
+            if (planHallwayFloors(tile / HEIGHT, tile % HEIGHT, target / HEIGHT, target % HEIGHT)) {
+                if (ALL_ROOMS.union(tile, target)) {
+                    roomComponents--;
+                }
                 deadEnds.remove(tile);
                 deadEnds.remove(target);
             } else {
@@ -333,56 +319,151 @@ public class BareBonesWorld implements Serializable {
 
     /** If the hallway was a dead end, reconnect them so that all rooms connect together */
     private void reconnectDeadEnds() {
-        Set<Point> currentDeadEnds = new HashSet<>(DEAD_ENDS);
-        Set<Point> newDeadEnds = new HashSet<>();
+        IntHashSet currentDeadEnds = new IntHashSet(DEAD_ENDS);
+        IntHashSet newDeadEnds = new IntHashSet();
         while (!areAllRoomsConnected()) {
+            int unconnectedRooms = roomComponents;
             newDeadEnds.clear();
             weedOutPlannedDeadEnds(currentDeadEnds, newDeadEnds);
-            currentDeadEnds = new HashSet<>(newDeadEnds);
+            currentDeadEnds = new IntHashSet(newDeadEnds);
+            if (roomComponents == unconnectedRooms) {
+                // every remaining dead end is walled off from the room nearest to it
+                connectFromNextNearest();
+            }
         }
 
-        for (Point tile : currentDeadEnds) {
-            WORLD[tile.getX()][tile.getY()] = RESOURCE_PACK.get(1);
+        for (int tile : currentDeadEnds.toArray()) {
+            WORLD.setPaletteIndex(tile / HEIGHT, tile % HEIGHT, WALL);
         }
     }
 
-    /** Checks to see if all rooms are connected together by hallways */
-    private boolean areAllRoomsConnected() {
-        List<Point> hallwayStarts = new ArrayList<>(HALLWAY_STARTS);
-        for (int i = 0; i < hallwayStarts.size(); i++) {
-            for (int j = i + 1; j < hallwayStarts.size(); j++) {
-                if (!ALL_ROOMS.connected(hallwayStarts.get(i), hallwayStarts.get(j))) {
-                    return false;
+    /**
+     * Routes hallways from every start to the starts of other rooms, nearest first, until one is found, for
+     * when routing each start only to its nearest one has stopped connecting rooms.
+     * @throws IllegalStateException if no start can reach any room it is not yet connected to
+     */
+    private void connectFromNextNearest() {
+        int unconnectedRooms = roomComponents;
+        int[] starts = HALLWAY_STARTS.toArray();
+        HallwayStartIndex index = new HallwayStartIndex(starts, WIDTH, HEIGHT);
+        int[] nearest = new int[starts.length];
+        for (int tile : starts) {
+            int found = index.nearestUnconnected(tile, ALL_ROOMS, nearest);
+            for (int i = 0; i < found; i++) {
+                if (planHallwayFloors(tile / HEIGHT, tile % HEIGHT, nearest[i] / HEIGHT, nearest[i] % HEIGHT)) {
+                    ALL_ROOMS.union(tile, nearest[i]);
+                    roomComponents--;
+                    break;
                 }
             }
         }
-        return true;
+        if (roomComponents == unconnectedRooms) {
+            throw new IllegalStateException(roomComponents + " groups of rooms cannot be joined by hallways");
+        }
+    }
+
+    /** Checks to see if all rooms are connected together by hallways */
+    private boolean areAllRoomsConnected() {
+        return roomComponents <= 1;
     }
 
     /** Create the hallway floors that were planned out  */
     private void createHallwayFloors() {
-        for (Point tile : HALLWAY_FLOORS) {
-            WORLD[tile.getX()][tile.getY()] = RESOURCE_PACK.get(2);
+        for (int tile : HALLWAY_FLOORS.toArray()) {
+            WORLD.setPaletteIndex(tile / HEIGHT, tile % HEIGHT, HALLWAY);
         }
     }
 
     /** Creates the walls for the hallways */
     private void createHallwayWalls() {
-        for (Point tile : HALLWAY_FLOORS) { // for everything in the hash set, draw a border around it
-            for (int x = tile.getX() - 1; x <= tile.getX() + 1; x++) {
-                for (int y = tile.getY() - 1; y <= tile.getY() + 1; y++) {
-                    if (WORLD[x][y] == RESOURCE_PACK.getLast()) {
-                        WORLD[x][y] = RESOURCE_PACK.get(1);
+        for (int tile : HALLWAY_FLOORS.toArray()) { // for everything in the hash set, draw a border around it
+            for (int x = tile / HEIGHT - 1; x <= tile / HEIGHT + 1; x++) {
+                for (int y = tile % HEIGHT - 1; y <= tile % HEIGHT + 1; y++) {
+                    if (WORLD.inBounds(x, y) && WORLD.paletteIndex(x, y) == NOTHING) {
+                        WORLD.setPaletteIndex(x, y, WALL);
                     }
                 }
             }
         }
     }
 
+    /** A possible hallway between two starts in different rooms, with from < to */
+    private record Edge(int from, int to, long distance) { }
+
+    /** Lists the hallways from every start to its closest starts in other rooms, shortest first */
+    private List<Edge> candidateHallways() {
+        int[] starts = HALLWAY_STARTS.toArray();
+        HallwayStartIndex index = new HallwayStartIndex(starts, WIDTH, HEIGHT);
+        Set<Edge> edges = new LinkedHashSet<>();
+        int[] nearest = new int[MST_CANDIDATES];
+        for (int start : starts) {
+            int found = index.nearestUnconnected(start, ALL_ROOMS, nearest);
+            for (int i = 0; i < found; i++) {
+                long dx = nearest[i] / HEIGHT - start / HEIGHT;
+                long dy = nearest[i] % HEIGHT - start % HEIGHT;
+                // store each pair in one direction only so it is not routed twice
+                edges.add(new Edge(Math.min(start, nearest[i]), Math.max(start, nearest[i]), dx * dx + dy * dy));
+            }
+        }
+        List<Edge> sorted = new ArrayList<>(edges);
+        sorted.sort((e1, e2) -> {
+            if (e1.distance() != e2.distance()) {
+                return Long.compare(e1.distance(), e2.distance());
+            }
+            return e1.from() != e2.from() ? Integer.compare(e1.from(), e2.from()) : Integer.compare(e1.to(), e2.to());
+        });
+        return sorted;
+    }
+
+    /** Plans the hallway for a candidate, returning false if it cannot be routed */
+    private boolean planHallwayFloors(Edge edge) {
+        return planHallwayFloors(edge.from() / HEIGHT, edge.from() % HEIGHT, edge.to() / HEIGHT, edge.to() % HEIGHT);
+    }
+
+    /**
+     * Connects the rooms along a minimum spanning tree of the candidate hallways using Kruskal's algorithm,
+     * then builds a fraction of the hallways that would close loops. Every candidate is routed at most once.
+     */
+    private void connectRoomsByTree() {
+        List<Edge> loops = new ArrayList<>();
+        for (Edge edge : candidateHallways()) {
+            if (ALL_ROOMS.connected(edge.from(), edge.to())) {
+                loops.add(edge);
+            } else if (planHallwayFloors(edge)) {
+                ALL_ROOMS.union(edge.from(), edge.to());
+                roomComponents--;
+            }
+        }
+        for (Edge edge : loops) {
+            if (RANDOM.nextDouble() < EXTRA_HALLWAYS) {
+                planHallwayFloors(edge);
+            }
+        }
+
+        // join any rooms the candidates missed, going further afield once a pass makes no progress
+        while (!areAllRoomsConnected()) {
+            int unconnectedRooms = roomComponents;
+            weedOutPlannedDeadEnds(HALLWAY_STARTS, new IntHashSet());
+            if (roomComponents == unconnectedRooms) {
+                connectFromNextNearest();
+            }
+        }
+
+        for (int tile : HALLWAY_STARTS.toArray()) {
+            if (!HALLWAY_FLOORS.contains(tile)) {
+                WORLD.setPaletteIndex(tile / HEIGHT, tile % HEIGHT, WALL);
+            }
+        }
+    }
+
     /** Generates the hallway with its border */
     private void generateHallways() {
-        weedOutPlannedDeadEnds(HALLWAY_STARTS, DEAD_ENDS);
-        reconnectDeadEnds();
+        if (HALLWAY_STRATEGY == HallwayStrategy.MST) {
+            connectRoomsByTree();
+        } else {
+            weedOutPlannedDeadEnds(HALLWAY_STARTS, DEAD_ENDS);
+            reconnectDeadEnds();
+        }
         createHallwayFloors();
         createHallwayWalls();
     }
@@ -0,0 +1,227 @@
+package core;
+
+import edu.princeton.cs.algs4.StdDraw;
+import tileengine.*;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.*;
+import java.util.*;
+
+/**
+ * An open world with no edges. The world is split into square chunks that are generated on demand as the
+ * avatar approaches them, each from the seed and its own chunk coordinates, so a chunk always comes out
+ * the same no matter when or in which order it is generated. Every pair of neighbouring chunks shares a
+ * portal on their common edge that both chunks route a hallway to, which stitches the hallways together
+ * across chunk borders. Only the most recently used chunks are kept in memory; the rest are dropped and
+ * simply generated again if the avatar returns.
+ */
+public class ChunkedWorld implements Serializable {
+    public static final int CHUNK_SIZE = 48;
+    private static final int VIEW_WIDTH = 60;
+    private static final int VIEW_HEIGHT = 45;
+    private static final int SMALL_FONT = 20;
+    private static final int HEADER_SIZE = 2;
+    /** Portals stay this far from the corners of a chunk so that they never meet another edge's portal */
+    private static final int PORTAL_MARGIN = 8;
+    /** Chunks within this many chunks of the avatar's chunk are generated ahead of time */
+    private static final int LOAD_RADIUS = 1;
+    private static final int MAX_RESIDENT_CHUNKS = 36;
+    private static final double EXTRA_HALLWAYS = 0.1;
+    private static final int EAST = 0;
+    private static final int NORTH = 1;
+    private static final int ROOMS = 2;
+    private final long SEED;
+    private final String RESOURCE;
+    private final TETile AVATAR;
+    private int avatarX;
+    private int avatarY;
+    /** Coordinates of the chunks that were in memory when the world was saved, reloaded on load */
+    private long[] savedChunks = new long[0];
+    private transient ArrayList<TETile> resourcePack;
+    private transient LinkedHashMap<Long, TileGrid> chunks;
+    private transient TERenderer TER;
+    private transient TileGrid view;
+
+    public ChunkedWorld(long seed, TETile avatar, String resource) {
+        this.SEED = seed;
+        this.RESOURCE = resource;
+        this.AVATAR = avatar;
+        initializeChunks();
+        placeAvatar();
+    }
+
+    private void initializeChunks() {
+        this.resourcePack = new ResourcePack(RESOURCE).chooseResourcePack();
+        this.chunks = new LinkedHashMap<>(MAX_RESIDENT_CHUNKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TileGrid> eldest) {
+                return size() > MAX_RESIDENT_CHUNKS;
+            }
+        };
+    }
+
+    /** Places the avatar on the first tile it can stand on in the chunk at the origin */
+    private void placeAvatar() {
+        TileGrid origin = chunk(0, 0);
+        for (int x = 0; x < CHUNK_SIZE; x++) {
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                if (TileProperties.isWalkable(origin.get(x, y))) {
+                    avatarX = x;
+                    avatarY = y;
+                    loadAround();
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("The chunk at the origin has no tile the avatar can stand on.");
+    }
+
+    /** Returns the tile at the given world coordinates, generating its chunk if needed */
+    public TETile getTile(int x, int y) {
+        TileGrid chunk = chunk(Math.floorDiv(x, CHUNK_SIZE), Math.floorDiv(y, CHUNK_SIZE));
+        return chunk.get(Math.floorMod(x, CHUNK_SIZE), Math.floorMod(y, CHUNK_SIZE));
+    }
+
+    /** Moves the avatar by one tile if the tile it would move onto can be walked on */
+    public void moveAvatar(int dx, int dy) {
+        if (TileProperties.isWalkable(getTile(avatarX + dx, avatarY + dy))) {
+            avatarX += dx;
+            avatarY += dy;
+            loadAround();
+        }
+    }
+
+    /** Generates the chunks around the avatar before it can see them */
+    private void loadAround() {
+        int chunkX = Math.floorDiv(avatarX, CHUNK_SIZE);
+        int chunkY = Math.floorDiv(avatarY, CHUNK_SIZE);
+        for (int cx = chunkX - LOAD_RADIUS; cx <= chunkX + LOAD_RADIUS; cx++) {
+            for (int cy = chunkY - LOAD_RADIUS; cy <= chunkY + LOAD_RADIUS; cy++) {
+                chunk(cx, cy);
+            }
+        }
+    }
+
+    /**
+     * Copies the part of the world whose bottom left corner is at (originX, originY) into the view,
+     * with the avatar drawn on top.
+     */
+    public void fillView(TileGrid window, int originX, int originY) {
+        for (int x = 0; x < window.width(); x++) {
+            for (int y = 0; y < window.height(); y++) {
+                window.set(x, y, getTile(originX + x, originY + y));
+            }
+        }
+        if (window.inBounds(avatarX - originX, avatarY - originY)) {
+            window.set(avatarX - originX, avatarY - originY, AVATAR);
+        }
+    }
+
+    private TileGrid chunk(int cx, int cy) {
+        long key = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+        TileGrid chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = generateChunk(cx, cy);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    private TileGrid generateChunk(int cx, int cy) {
+        List<Point> portals = List.of(
+                new Point(0, portalOffset(cx - 1, cy, EAST)),
+                new Point(CHUNK_SIZE - 1, portalOffset(cx, cy, EAST)),
+                new Point(portalOffset(cx, cy - 1, NORTH), 0),
+                new Point(portalOffset(cx, cy, NORTH), CHUNK_SIZE - 1));
+        BareBonesWorld generator = new BareBonesWorld(hash(cx, cy, ROOMS), CHUNK_SIZE, CHUNK_SIZE, resourcePack,
+                HallwayStrategy.MST, EXTRA_HALLWAYS, 0, portals);
+        return generator.initializeGrid();
+    }
+
+    /** Returns where along the east or north edge of the given chunk its portal lies */
+    private int portalOffset(int cx, int cy, int edge) {
+        return PORTAL_MARGIN + (int) Math.floorMod(hash(cx, cy, edge), (long) (CHUNK_SIZE - 2 * PORTAL_MARGIN));
+    }
+
+    /** Derives a value for the given chunk and purpose from the seed, mixing the bits with SplitMix64 */
+    private long hash(int cx, int cy, int salt) {
+        return mix(mix(mix(SEED + salt) + cx) + cy);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void initializeRenderer() {
+        this.TER = new TERenderer();
+        TER.initialize(VIEW_WIDTH, VIEW_HEIGHT);
+        this.view = new TileGrid(VIEW_WIDTH, VIEW_HEIGHT, Tileset.NOTHING);
+    }
+
+    /** Draws the part of the world around the avatar, keeping the avatar in the middle of the screen */
+    public void renderWorld() {
+        if (TER == null) {
+            initializeRenderer();
+        }
+        fillView(view, avatarX - VIEW_WIDTH / 2, avatarY - (VIEW_HEIGHT - HEADER_SIZE) / 2);
+        TER.renderFrame(view);
+
+        StdDraw.setPenColor(Color.BLACK);
+        StdDraw.filledRectangle(VIEW_WIDTH / 2.0, VIEW_HEIGHT - 1, VIEW_WIDTH / 2.0, HEADER_SIZE - 1);
+        StdDraw.setPenColor(Color.WHITE);
+        StdDraw.setFont(new Font("Monaco", Font.BOLD, SMALL_FONT));
+        StdDraw.textLeft(2, VIEW_HEIGHT - 1, "Position (" + avatarX + ", " + avatarY + "), "
+                + chunks.size() + " chunks in memory");
+        StdDraw.textRight(VIEW_WIDTH - 2, VIEW_HEIGHT - 1, "Save + Quit (:Q)");
+        StdDraw.show();
+        TER.resetFont();
+    }
+
+    /** Saves the seed, the avatar and which chunks are in memory; the chunks themselves are regenerated */
+    public void saveWorld() {
+        savedChunks = new long[chunks.size()];
+        int i = 0;
+        for (long key : chunks.keySet()) {
+            savedChunks[i++] = key;
+        }
+        File worldFile = new File("./byow_open.txt");
+        try (FileOutputStream fs = new FileOutputStream(worldFile);
+             ObjectOutputStream os = new ObjectOutputStream(fs)) {
+            os.writeObject(this);
+        } catch (IOException e) {
+            System.out.println("Error saving the world: " + e.getMessage());
+        }
+    }
+
+    public static ChunkedWorld loadWorld() {
+        File worldFile = new File("./byow_open.txt");
+        if (!worldFile.exists()) {
+            System.out.println("Save file not found.");
+            return null;
+        }
+        try (FileInputStream fs = new FileInputStream(worldFile);
+             ObjectInputStream is = new ObjectInputStream(fs)) {
+            ChunkedWorld loadedWorld = (ChunkedWorld) is.readObject();
+            loadedWorld.initializeChunks();
+            for (long key : loadedWorld.savedChunks) {
+                loadedWorld.chunk((int) (key >> 32), (int) key);
+            }
+            loadedWorld.loadAround();
+            return loadedWorld;
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Error loading the world: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int getAvatarX() {
+        return avatarX;
+    }
+
+    public int getAvatarY() {
+        return avatarY;
+    }
+}
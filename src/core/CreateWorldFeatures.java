@@ -2,32 +2,35 @@ package core;
 
 import edu.princeton.cs.algs4.StdDraw;
 import tileengine.*;
-import utils.*;
 
 import java.awt.*;
-import java.io.*;
-import java.util.*;
-import java.util.List;
 
-public class CreateWorldFeatures implements Serializable {
+/**
+ * Draws a game with StdDraw. The game itself lives in a WorldState; this class only adds the window,
+ * which is not opened until the world is first rendered. The window shows a WIDTH by HEIGHT view of the
+ * world that follows the avatar, so worlds larger than the window scroll.
+ */
+public class CreateWorldFeatures {
     private static final int WIDTH = 60;
     private static final int HEIGHT = 45;
     private static final int SMALL_FONT = 20;
     private static final int HEADER_SIZE = 2;
-    private static final int VISIBILITY_RADIUS = 3;
-    private final BareBonesWorld BARE_BONES_WORLD;
-    private boolean LINE_OF_SIGHT = false;
-    private final TETile[][] WORLD;
+    private static final int VISIBILITY_RADIUS = 6;
+    private final WorldState STATE;
+    private final Camera CAMERA = new Camera(WIDTH, HEIGHT);
+    private final FieldOfView FOV = new FieldOfView(VISIBILITY_RADIUS);
     private TERenderer TER;
-    private Avatar AVATAR;
+    /** Shown in the header in place of the hovered tile, or null to show the hovered tile */
+    private String status;
+    /** What the header last said on its left */
+    private String drawnLabel;
 
-    public CreateWorldFeatures(long seed, TETile avatar, String resource) { // , TETile avatar
-        ResourcePack resourcePack = new ResourcePack(resource);
-        ArrayList<TETile> selectedResource = resourcePack.chooseResourcePack();
-        this.BARE_BONES_WORLD = new BareBonesWorld(seed, WIDTH, HEIGHT, selectedResource);
-        this.WORLD = BARE_BONES_WORLD.initializeWorld();
-        initializeRenderer();
-        initializeAvatar(avatar);
+    public CreateWorldFeatures(long seed, TETile avatar, String resource) {
+        this(new WorldState(seed, avatar, resource));
+    }
+
+    public CreateWorldFeatures(WorldState state) {
+        this.STATE = state;
     }
 
     private void initializeRenderer() {
@@ -35,23 +38,21 @@ public class CreateWorldFeatures implements Serializable {
         TER.initialize(WIDTH, HEIGHT);
     }
 
-    /** Creates the avatar and randomly places it in one of the rooms */
-    private void initializeAvatar(TETile avatar) {
-        List<Point> allRoomFloors = BARE_BONES_WORLD.getAllRoomFloors();
-        Point randomRoom = allRoomFloors.get(RandomUtils.uniform(new Random(), 0, allRoomFloors.size()));
-        AVATAR = new Avatar(randomRoom.getX(), randomRoom.getY(), WORLD[randomRoom.getX()][randomRoom.getY()], avatar);
-    }
-
-    private void updateAvatar() {
-        WORLD[AVATAR.getX()][AVATAR.getY()] = AVATAR.getCharacter();
-    }
-
     public void renderWorld() {
-        updateAvatar();
-        if (LINE_OF_SIGHT) {
-            TER.renderFrame(lineOfSightWorld());
+        if (TER == null) {
+            initializeRenderer();
+        }
+        STATE.placeAvatar();
+        TileGrid world = STATE.getGrid();
+        CAMERA.follow(STATE.getAvatar().getX(), STATE.getAvatar().getY(), world.width(), world.height());
+        if (STATE.isLineOfSight()) {
+            // only recomputed when the avatar has moved since the last frame
+            if (FOV.update(world, STATE.getAvatar().getX(), STATE.getAvatar().getY())) {
+                STATE.getExplored().reveal(FOV);
+            }
+            TER.renderFrame(world, CAMERA, FOV, STATE.getExplored());
         } else {
-            TER.renderFrame(WORLD);
+            TER.renderFrame(world, CAMERA);
         }
         drawHeader();
     }
@@ -65,85 +66,87 @@ public class CreateWorldFeatures implements Serializable {
         Font fontSmall = new Font("Monaco", Font.BOLD, SMALL_FONT);
         StdDraw.setFont(fontSmall);
 
-        int mouseX = (int) StdDraw.mouseX();
-        int mouseY = (int) StdDraw.mouseY();
-        String tileDescription = "not in the world";
-        if (mouseX >= 0 && mouseX < WIDTH && mouseY >= 0 && mouseY < HEIGHT - HEADER_SIZE) {
-            TETile i = WORLD[mouseX][mouseY];
-            if (i.description().equals("mountain") || i.description().equals("water")
-                    || i.description().equals("wall")) {
-                tileDescription = "a wall tile";
-            } else if (i.description().equals("nothing")) {
-                tileDescription = "empty";
-            } else {
-                tileDescription = "a floor tile";
-            }
-        }
-
-        StdDraw.textLeft(2, HEIGHT - 1, "Hovered tile is " + tileDescription);
+        String label = headerLabel();
+        StdDraw.textLeft(2, HEIGHT - 1, label);
         StdDraw.textRight(WIDTH - 2, HEIGHT - 1, "Toggle visibility (V), Save + Quit (:Q)");
         // StdDraw.line(0, HEIGHT - HEADER_SIZE, WIDTH, HEIGHT - HEADER_SIZE);
         StdDraw.show();
+        drawnLabel = label;
     }
 
-    private TETile[][] lineOfSightWorld() {
-        TETile[][] limitedView = new TETile[WIDTH][HEIGHT];
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                if (Math.abs(x - AVATAR.getX()) <= VISIBILITY_RADIUS
-                        && Math.abs(y - AVATAR.getY()) <= VISIBILITY_RADIUS) {
-                    limitedView[x][y] = WORLD[x][y];
-                } else {
-                    limitedView[x][y] = Tileset.NOTHING;
-                }
-            }
+    /** Redraws the header only if what it says changed since it was last drawn */
+    public void updateHeader() {
+        if (!headerLabel().equals(drawnLabel)) {
+            drawHeader();
         }
-        return limitedView;
     }
 
-    public void saveWorld() {
-        File worldFile = new File("./byow.txt");
-        try {
-            if (!worldFile.exists()) {
-                worldFile.createNewFile();
-            }
-            try (FileOutputStream fs = new FileOutputStream(worldFile);
-                 ObjectOutputStream os = new ObjectOutputStream(fs)) {
-                os.writeObject(this);
-            }
-        } catch (IOException e) {
-            System.out.println("Error saving the world: " + e.getMessage());
+    /**
+     * Shows the given text in the header in place of the hovered tile, from the next time the header is drawn.
+     * @param status the text to show, or null to show the hovered tile again
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    private String headerLabel() {
+        return status != null ? status : "Hovered tile is " + hoveredTileDescription();
+    }
+
+    private String hoveredTileDescription() {
+        int mouseX = (int) StdDraw.mouseX();
+        int mouseY = (int) StdDraw.mouseY();
+        int worldX = CAMERA.worldX(mouseX);
+        int worldY = CAMERA.worldY(mouseY);
+        if (mouseX >= 0 && mouseX < WIDTH && mouseY >= 0 && mouseY < HEIGHT - HEADER_SIZE
+                && STATE.getGrid().inBounds(worldX, worldY)) {
+            return TileProperties.hudLabel(STATE.getGrid().get(worldX, worldY));
         }
+        return "not in the world";
+    }
+
+    /** Returns how many tiles away the avatar can see while line of sight is on */
+    public int getVisibilityRadius() {
+        return FOV.radius();
+    }
+
+    /** Sets how many tiles away the avatar can see while line of sight is on */
+    public void setVisibilityRadius(int radius) {
+        FOV.setRadius(radius);
+    }
+
+    public void saveWorld() {
+        STATE.saveWorld();
     }
 
-    // @source: ChatGPT function to handle deserialization
+    /** Loads the saved game, or returns null if there is none */
     public static CreateWorldFeatures loadWorld() {
-        File worldFile = new File("./byow.txt");
-        if (!worldFile.exists()) {
-            System.out.println("Save file not found.");
-            return null;
-        }
-        try (FileInputStream fs = new FileInputStream(worldFile);
-             ObjectInputStream is = new ObjectInputStream(fs)) {
-            CreateWorldFeatures loadedWorld = (CreateWorldFeatures) is.readObject();
-            loadedWorld.initializeRenderer();
-            loadedWorld.updateAvatar();
-            return loadedWorld;
-        } catch (IOException | ClassNotFoundException e) {
-            System.out.println("Error loading the world: " + e.getMessage());
-            return null;
-        }
+        WorldState loadedState = WorldState.loadWorld();
+        return loadedState == null ? null : new CreateWorldFeatures(loadedState);
     }
 
+    /** Returns a copy of the world as a 2D TETile[][] array; changes to it do not affect the game */
     public TETile[][] getWorld() {
-        return WORLD;
+        return STATE.getGrid().toArray();
+    }
+
+    /** Returns the world's tiles, which the avatar moves through */
+    public TileGrid getGrid() {
+        return STATE.getGrid();
     }
 
     public Avatar getAvatar() {
-        return AVATAR;
+        return STATE.getAvatar();
+    }
+
+    public WorldState getState() {
+        return STATE;
     }
 
     public void toggleLineOfSight() {
-        LINE_OF_SIGHT = !LINE_OF_SIGHT;
+        STATE.toggleLineOfSight();
+        if (TER != null) {
+            TER.invalidate();
+        }
     }
 }
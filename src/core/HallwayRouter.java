@@ -0,0 +1,150 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Finds the shortest hallway between two tiles with A* over a grid, using a Manhattan distance heuristic.
+ * The open list, closed set and parent links live in arrays that are allocated once and reused by every
+ * search, so routing does not allocate anything per step. Cells are packed as x * height + y.
+ */
+public class HallwayRouter {
+    /** Decides which tiles a hallway may pass through */
+    public interface Passable {
+        boolean test(int x, int y);
+    }
+
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    private final int width;
+    private final int height;
+    private final Passable passable;
+    /** Cost of the cheapest known route from the start to each cell */
+    private final int[] cost;
+    private final int[] parent;
+    /** A cell is open during a search if its stamp equals epoch, and closed if it equals epoch + 1 */
+    private final int[] stamp;
+    private int epoch = 0;
+    /** Binary min-heap of (estimated total cost << 32 | cell) */
+    private long[] open;
+    private int openSize;
+    /** The cells of the last route found, from the target back towards the start */
+    private final int[] path;
+
+    public HallwayRouter(int width, int height, Passable passable) {
+        this.width = width;
+        this.height = height;
+        this.passable = passable;
+        this.cost = new int[width * height];
+        this.parent = new int[width * height];
+        this.stamp = new int[width * height];
+        this.open = new long[64];
+        this.path = new int[width * height];
+    }
+
+    /**
+     * Routes a hallway from the start to the target. The start and target themselves do not have to be
+     * passable. Returns the number of cells in the route, including the target but not the start, which
+     * can be read back with pathCell, or -1 if the target cannot be reached.
+     */
+    public int route(int startX, int startY, int targetX, int targetY) {
+        if (epoch >= Integer.MAX_VALUE - 2) {
+            Arrays.fill(stamp, 0);
+            epoch = 0;
+        }
+        epoch += 2;
+        openSize = 0;
+
+        int start = startX * height + startY;
+        int target = targetX * height + targetY;
+        stamp[start] = epoch;
+        cost[start] = 0;
+        parent[start] = -1;
+        push(heuristic(startX, startY, targetX, targetY), start);
+
+        while (openSize > 0) {
+            int cell = (int) pop();
+            if (stamp[cell] == epoch + 1) {
+                continue; // a stale entry for a cell that was already reached more cheaply
+            }
+            stamp[cell] = epoch + 1;
+            if (cell == target) {
+                return tracePath(start, target);
+            }
+
+            int x = cell / height;
+            int y = cell % height;
+            for (int i = 0; i < DX.length; i++) {
+                int nextX = x + DX[i];
+                int nextY = y + DY[i];
+                if (nextX < 0 || nextX >= width || nextY < 0 || nextY >= height) {
+                    continue;
+                }
+                int next = nextX * height + nextY;
+                if (stamp[next] == epoch + 1 || (next != target && !passable.test(nextX, nextY))) {
+                    continue;
+                }
+                int nextCost = cost[cell] + 1;
+                if (stamp[next] != epoch || nextCost < cost[next]) {
+                    stamp[next] = epoch;
+                    cost[next] = nextCost;
+                    parent[next] = cell;
+                    push(nextCost + heuristic(nextX, nextY, targetX, targetY), next);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the packed index of the i-th cell of the last route found */
+    public int pathCell(int i) {
+        return path[i];
+    }
+
+    private int tracePath(int start, int target) {
+        int length = 0;
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            path[length++] = cell;
+        }
+        return length;
+    }
+
+    private static int heuristic(int x, int y, int targetX, int targetY) {
+        return Math.abs(targetX - x) + Math.abs(targetY - y);
+    }
+
+    private void push(int priority, int cell) {
+        if (openSize == open.length) {
+            open = Arrays.copyOf(open, open.length * 2);
+        }
+        long entry = ((long) priority << 32) | cell;
+        int i = openSize++;
+        while (i > 0) {
+            int up = (i - 1) / 2;
+            if (open[up] <= entry) {
+                break;
+            }
+            open[i] = open[up];
+            i = up;
+        }
+        open[i] = entry;
+    }
+
+    private long pop() {
+        long top = open[0];
+        long last = open[--openSize];
+        int i = 0;
+        while (2 * i + 1 < openSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < openSize && open[child + 1] < open[child]) {
+                child++;
+            }
+            if (last <= open[child]) {
+                break;
+            }
+            open[i] = open[child];
+            i = child;
+        }
+        open[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,136 @@
+package core;
+
+/**
+ * A uniform grid of buckets over a fixed set of hallway starts, used to find the closest start that is
+ * not already connected to a given tile. Buckets are searched in rings of increasing distance around the
+ * tile, so a query only looks at the starts near it instead of every start in the world. Tiles are given
+ * and returned as packed cell indices (x * height + y), the same packing used by HallwayUnion.
+ */
+public class HallwayStartIndex {
+    private final int height;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    /** bucketStart[b] to bucketStart[b + 1] is the range of xs and ys that fall within bucket b */
+    private final int[] bucketStart;
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * Indexes the given starts, which must all be different tiles; a start given twice can be returned twice
+     * by the search for several nearest starts.
+     */
+    public HallwayStartIndex(int[] starts, int width, int height) {
+        int n = Math.max(1, starts.length);
+        this.height = height;
+        this.cellSize = Math.max(1, (int) Math.ceil(Math.sqrt((double) width * height / n)));
+        this.columns = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.bucketStart = new int[columns * rows + 1];
+        this.xs = new int[starts.length];
+        this.ys = new int[starts.length];
+
+        // counting sort of the starts into their buckets
+        for (int start : starts) {
+            bucketStart[bucket(start / height, start % height) + 1]++;
+        }
+        for (int b = 0; b < columns * rows; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        int[] next = new int[columns * rows];
+        System.arraycopy(bucketStart, 0, next, 0, next.length);
+        for (int start : starts) {
+            int slot = next[bucket(start / height, start % height)]++;
+            xs[slot] = start / height;
+            ys[slot] = start % height;
+        }
+    }
+
+    private int bucket(int x, int y) {
+        return (x / cellSize) * rows + (y / cellSize);
+    }
+
+    /**
+     * Returns the closest start that is not connected to the given tile, or -1 if there is none.
+     * Ties in distance go to the start with the smaller x, then the smaller y.
+     */
+    public int nearestUnconnected(int tile, HallwayUnion union) {
+        int[] nearest = new int[1];
+        return nearestUnconnected(tile, union, nearest) == 0 ? -1 : nearest[0];
+    }
+
+    /**
+     * Fills nearest with the closest starts that are not connected to the given tile, closest first, and
+     * returns how many were found. Ties in distance go to the start with the smaller x, then the smaller y.
+     */
+    public int nearestUnconnected(int tile, HallwayUnion union, int[] nearest) {
+        int k = nearest.length;
+        long[] bestDistance = new long[k];
+        int[] bestX = new int[k];
+        int[] bestY = new int[k];
+        int found = 0;
+
+        int tileX = tile / height;
+        int tileY = tile % height;
+        int column = Math.min(columns - 1, Math.max(0, tileX / cellSize));
+        int row = Math.min(rows - 1, Math.max(0, tileY / cellSize));
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing && k > 0; ring++) {
+            for (int c = column - ring; c <= column + ring; c++) {
+                if (c < 0 || c >= columns) {
+                    continue;
+                }
+                // only the edge of the ring is new; its inside was searched by the smaller rings
+                int step = (c == column - ring || c == column + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int r = row - ring; r <= row + ring; r += step) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    int b = c * rows + r;
+                    for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++) {
+                        long dx = xs[i] - tileX;
+                        long dy = ys[i] - tileY;
+                        long distance = dx * dx + dy * dy;
+                        if (found == k && !isCloser(distance, xs[i], ys[i],
+                                bestDistance[k - 1], bestX[k - 1], bestY[k - 1])) {
+                            continue;
+                        }
+                        if (union.connected(tile, xs[i] * height + ys[i])) {
+                            continue;
+                        }
+                        // insertion sort into the closest starts found so far
+                        int slot = Math.min(found, k - 1);
+                        while (slot > 0 && isCloser(distance, xs[i], ys[i],
+                                bestDistance[slot - 1], bestX[slot - 1], bestY[slot - 1])) {
+                            bestDistance[slot] = bestDistance[slot - 1];
+                            bestX[slot] = bestX[slot - 1];
+                            bestY[slot] = bestY[slot - 1];
+                            slot--;
+                        }
+                        bestDistance[slot] = distance;
+                        bestX[slot] = xs[i];
+                        bestY[slot] = ys[i];
+                        found = Math.min(found + 1, k);
+                    }
+                }
+            }
+            // every start beyond this ring is at least ring * cellSize away from the tile
+            long reach = (long) ring * cellSize;
+            if (found == k && bestDistance[k - 1] < reach * reach) {
+                break;
+            }
+        }
+
+        for (int i = 0; i < found; i++) {
+            nearest[i] = bestX[i] * height + bestY[i];
+        }
+        return found;
+    }
+
+    private static boolean isCloser(long distance, int x, int y, long otherDistance, int otherX, int otherY) {
+        if (distance != otherDistance) {
+            return distance < otherDistance;
+        }
+        return x < otherX || (x == otherX && y < otherY);
+    }
+}
@@ -0,0 +1,9 @@
+package core;
+
+/** The ways BareBonesWorld can choose which hallway starts to connect */
+public enum HallwayStrategy {
+    /** Connects every start to its nearest start in another room, then retries the dead ends */
+    LEGACY,
+    /** Connects the rooms along a minimum spanning tree of the starts, with a bounded number of routes */
+    MST
+}
@@ -1,31 +1,74 @@
 package core;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
+/**
+ * Disjoint sets over every cell of a world, keyed by the packed cell index (x * height + y).
+ * Uses union by rank and iterative path halving, and keeps a live count of the components.
+ */
 public class HallwayUnion implements Serializable {
-    private final Map<Point, Point> parent = new HashMap<>();
+    private final int height;
+    private final int[] parent;
+    private final byte[] rank;
+    private int count;
 
-    public Point find(Point p) {
-        if (!parent.containsKey(p)) {
-            parent.put(p, p);
+    public HallwayUnion(int width, int height) {
+        this.height = height;
+        this.parent = new int[width * height];
+        this.rank = new byte[width * height];
+        this.count = width * height;
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
         }
-        if (!p.equals(parent.get(p))) {
-            parent.put(p, find(parent.get(p)));
+    }
+
+    /** Packs the given coordinates into the cell index used by this union */
+    public int index(int x, int y) {
+        return x * height + y;
+    }
+
+    /** Returns the root of the set containing cell p */
+    public int find(int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
         }
-        return parent.get(p);
+        return p;
     }
 
-    public void union(Point p1, Point p2) {
-        Point root1 = find(p1);
-        Point root2 = find(p2);
-        if (!root1.equals(root2)) {
-            parent.put(root1, root2);
+    /** Merges the sets containing cells p1 and p2, returning true if they were previously disjoint */
+    public boolean union(int p1, int p2) {
+        int root1 = find(p1);
+        int root2 = find(p2);
+        if (root1 == root2) {
+            return false;
+        }
+        if (rank[root1] < rank[root2]) {
+            parent[root1] = root2;
+        } else if (rank[root1] > rank[root2]) {
+            parent[root2] = root1;
+        } else {
+            parent[root1] = root2;
+            rank[root2]++;
         }
+        count--;
+        return true;
+    }
+
+    public boolean connected(int p1, int p2) {
+        return find(p1) == find(p2);
+    }
+
+    public boolean union(Point p1, Point p2) {
+        return union(index(p1.getX(), p1.getY()), index(p2.getX(), p2.getY()));
     }
 
     public boolean connected(Point p1, Point p2) {
-        return find(p1).equals(find(p2));
+        return connected(index(p1.getX(), p1.getY()), index(p2.getX(), p2.getY()));
+    }
+
+    /** Returns the number of disjoint sets, counting every cell that was never unioned as its own set */
+    public int count() {
+        return count;
     }
 }
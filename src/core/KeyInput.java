@@ -0,0 +1,140 @@
+package core;
+
+import edu.princeton.cs.algs4.StdDraw;
+import utils.KeyRing;
+
+import java.awt.Frame;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.util.Arrays;
+
+/**
+ * Hands keys typed in the game window to the game loop. Keys are pushed into a lock-free ring by the AWT
+ * event thread as they are typed, stamped with the time they were typed, and the game loop takes every
+ * waiting key at once at the start of each tick. When the loop has drawn the frame for those keys, it
+ * reports it here, which records how long each key waited to show up on screen.
+ *
+ * StdDraw keeps queueing keys on its own as well; that queue is emptied and ignored every tick. If the
+ * window cannot be found, keys are read from StdDraw's queue instead and their wait is measured from the
+ * tick that read them.
+ */
+public class KeyInput implements KeyListener {
+    private static final int CAPACITY = 256;
+    /** How many of the most recent key-to-frame latencies are kept for percentiles */
+    private static final int SAMPLES = 1024;
+    private final KeyRing RING = new KeyRing(CAPACITY);
+    private final char[] KEYS = new char[CAPACITY];
+    private final long[] TIMES = new long[CAPACITY];
+    private final long[] LATENCIES = new long[SAMPLES];
+    /** The StdDraw window this listens to, or null if it was not found */
+    private final Frame WINDOW;
+    private int count = 0;
+    private long samples = 0;
+
+    private KeyInput(Frame window) {
+        this.WINDOW = window;
+    }
+
+    /**
+     * Starts listening to the StdDraw window; call it after the window is created or resized, since StdDraw
+     * replaces its window when the canvas size changes. Call detach when done with the input.
+     */
+    public static KeyInput attach() {
+        Frame window = stdDrawWindow();
+        KeyInput input = new KeyInput(window);
+        if (window != null) {
+            window.addKeyListener(input);
+        }
+        return input;
+    }
+
+    /** Returns the visible window StdDraw itself listens to for keys, or null if there is none */
+    private static Frame stdDrawWindow() {
+        for (Frame frame : Frame.getFrames()) {
+            if (!frame.isVisible()) {
+                continue;
+            }
+            for (KeyListener listener : frame.getKeyListeners()) {
+                if (listener instanceof StdDraw) {
+                    return frame;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Stops listening to the window; keys typed after this are no longer taken by poll */
+    public void detach() {
+        if (WINDOW != null) {
+            WINDOW.removeKeyListener(this);
+        }
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // a full ring means the game has stalled; dropping keys is better than blocking the event thread
+        RING.offer(e.getKeyChar(), System.nanoTime());
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+    }
+
+    /** Takes every key typed since the last tick and returns how many there were */
+    public int poll() {
+        if (WINDOW != null) {
+            while (StdDraw.hasNextKeyTyped()) {
+                StdDraw.nextKeyTyped();
+            }
+            count = RING.drainTo(KEYS, TIMES);
+        } else {
+            long now = System.nanoTime();
+            count = 0;
+            while (count < KEYS.length && StdDraw.hasNextKeyTyped()) {
+                KEYS[count] = StdDraw.nextKeyTyped();
+                TIMES[count] = now;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns the i-th key taken by the last poll, oldest first */
+    public char key(int i) {
+        return KEYS[i];
+    }
+
+    /** Records that the frame showing every key from the last poll is now on screen */
+    public void frameShown() {
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            LATENCIES[(int) (samples++ % SAMPLES)] = now - TIMES[i];
+        }
+        count = 0;
+    }
+
+    /**
+     * Returns the given percentile of the time from a key being typed to its frame being shown, in
+     * nanoseconds, over the most recent keys, or 0 if no key has been shown yet.
+     */
+    public long latencyPercentile(double percentile) {
+        int n = (int) Math.min(samples, SAMPLES);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(LATENCIES, n);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, rank))];
+    }
+
+    /** Returns the median, 95th and 99th percentile key-to-frame latencies in milliseconds, short enough for the HUD */
+    public String latencySummary() {
+        return String.format("Latency p50 %.1f, p95 %.1f, p99 %.1f ms",
+                latencyPercentile(50) / 1e6, latencyPercentile(95) / 1e6, latencyPercentile(99) / 1e6);
+    }
+}
@@ -3,9 +3,12 @@ package core;
 import edu.princeton.cs.algs4.StdDraw;
 import tileengine.*;
 import java.awt.*;
+import java.util.concurrent.locks.LockSupport;
 
 public class MenuAndMovement {
     private static final int ONE_SEC = 1000;
+    /** The game advances and redraws at most 60 times a second */
+    private static final long TICK_NANOS = 1_000_000_000L / 60;
     private static final int SMALL_FONT = 20;
     private static final int MED_FONT = 30;
     private static final int BIG_FONT = 40;
@@ -20,6 +23,9 @@ public class MenuAndMovement {
     private String selectedResource = "Cotton Candy";
     private TETile selectedAvatar = Tileset.HEART;
     private CreateWorldFeatures world;
+    private ChunkedWorld openWorld;
+    /** Keys typed in the window while a world is being played, with their key-to-frame latencies */
+    private KeyInput keyInput;
     private final int WIDTH;
     private final int HEIGHT;
 
@@ -47,7 +53,7 @@ public class MenuAndMovement {
         Font fontSmall = new Font("Monaco", Font.PLAIN, SMALL_FONT);
         StdDraw.setFont(fontSmall);
         String[] options = {"New Game (N)", "Load Game (L)", "Quit (Q)", "Choose New Avatar (A)",
-            "Choose new resource pack (R)"};
+            "Choose new resource pack (R)", "Open World (O)"};
         for (int i = 0; i < options.length; i++) {
             StdDraw.text(WIDTH / 2.0, (HEIGHT / 3.0 - i * MED_FONT) + SMALL_ADJUSTMENT, options[i]);
         }
@@ -66,13 +72,25 @@ public class MenuAndMovement {
         StdDraw.show();
     }
 
-    /** Returns the next key typed, no matter how much time has passed */
+    /** Returns the next key typed, no matter how much time has passed, sleeping for a tick between checks */
     private char getInput() {
-        while (true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                return StdDraw.nextKeyTyped();
-            }
+        while (!StdDraw.hasNextKeyTyped()) {
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+        return StdDraw.nextKeyTyped();
+    }
+
+    /**
+     * Sleeps until the given tick starts and returns when the one after it starts. If the game has fallen
+     * more than a tick behind, the ticks it missed are skipped rather than run back to back.
+     */
+    private static long waitForTick(long tick) {
+        long remaining = tick - System.nanoTime();
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = tick - System.nanoTime();
         }
+        return -remaining > TICK_NANOS ? System.nanoTime() + TICK_NANOS : tick + TICK_NANOS;
     }
 
     /** Processes user input into the main menu options */
@@ -92,6 +110,9 @@ public class MenuAndMovement {
                 case 'L':
                     loadPrevWorld();
                     break;
+                case 'O':
+                    createOpenWorld();
+                    break;
                 case 'Q':
                     drawFrame("Quitting game.");
                     StdDraw.pause(ONE_SEC);
@@ -151,26 +172,24 @@ public class MenuAndMovement {
     private void chooseYourResource() {
         chooseResourceFrame(selectedResource);
         while (true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char resourceKey = Character.toUpperCase(StdDraw.nextKeyTyped());
-                if (resourceKey == 'A') {
-                    selectedResource = "A Forest";
-                    chooseResourceFrame(selectedResource);
-                }
-                if (resourceKey == 'B') {
-                    selectedResource = "Beach";
-                    chooseResourceFrame(selectedResource);
-                }
-                if (resourceKey == 'C') {
-                    selectedResource = "Cotton Candy";
-                    chooseResourceFrame(selectedResource);
-                }
-                if (resourceKey == 'S') {
-                    drawMenu();
-                    break;
-                }
+            char resourceKey = Character.toUpperCase(getInput());
+            if (resourceKey == 'A') {
+                selectedResource = "A Forest";
                 chooseResourceFrame(selectedResource);
             }
+            if (resourceKey == 'B') {
+                selectedResource = "Beach";
+                chooseResourceFrame(selectedResource);
+            }
+            if (resourceKey == 'C') {
+                selectedResource = "Cotton Candy";
+                chooseResourceFrame(selectedResource);
+            }
+            if (resourceKey == 'S') {
+                drawMenu();
+                break;
+            }
+            chooseResourceFrame(selectedResource);
         }
     }
 
@@ -184,102 +203,197 @@ public class MenuAndMovement {
     private void chooseYourAvatar() {
         chooseAvatarFrame(selectedAvatar);
         while (true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char avatarKey = Character.toUpperCase(StdDraw.nextKeyTyped());
-                if (avatarKey == 'A') {
-                    selectedAvatar = Tileset.HEART;
-                    chooseAvatarFrame(selectedAvatar);
-                }
-                if (avatarKey == 'B') {
-                    selectedAvatar = Tileset.INDENT;
-                    chooseAvatarFrame(selectedAvatar);
-                }
-                if (avatarKey == 'C') {
-                    selectedAvatar = Tileset.HOUSE;
-                    chooseAvatarFrame(selectedAvatar);
-                }
-                if (avatarKey == 'S') {
-                    drawMenu();
-                    break;
-                }
+            char avatarKey = Character.toUpperCase(getInput());
+            if (avatarKey == 'A') {
+                selectedAvatar = Tileset.HEART;
+                chooseAvatarFrame(selectedAvatar);
+            }
+            if (avatarKey == 'B') {
+                selectedAvatar = Tileset.INDENT;
+                chooseAvatarFrame(selectedAvatar);
+            }
+            if (avatarKey == 'C') {
+                selectedAvatar = Tileset.HOUSE;
                 chooseAvatarFrame(selectedAvatar);
             }
+            if (avatarKey == 'S') {
+                drawMenu();
+                break;
+            }
+            chooseAvatarFrame(selectedAvatar);
         }
     }
 
 
     /** Creates a new world for the player */
     private void createNewWorld() {
-        drawFrame("Enter seed & press S to start: ");
+        long seed = readSeed("Enter seed & press S to start: ", false);
+        world = new CreateWorldFeatures(seed, selectedAvatar, selectedResource);
+        world.renderWorld();
+        processMovement();
+    }
+
+    /**
+     * Reads a seed typed by the player, finished by pressing S. If loading is allowed, pressing L before any
+     * digit is typed returns -1 instead.
+     */
+    private long readSeed(String prompt, boolean canLoad) {
+        drawFrame(prompt);
         StringBuilder seed = new StringBuilder();
         boolean digitEntered = false;
         while (true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char seedling = Character.toUpperCase(StdDraw.nextKeyTyped());
-                if (seedling == 'S' && digitEntered) {
-                    break;
-                } else if (!Character.isDigit(seedling)) {
-                    drawFrame("Seeds can only contain digits.");
-                    StdDraw.pause(ONE_SEC);
-                } else {
-                    seed.append(seedling);
-                    digitEntered = true;
-                }
-                drawFrame("Enter seed & press S to start: " + seed);
+            char seedling = Character.toUpperCase(getInput());
+            if (seedling == 'S' && digitEntered) {
+                break;
+            } else if (seedling == 'L' && canLoad && !digitEntered) {
+                return -1;
+            } else if (!Character.isDigit(seedling)) {
+                drawFrame("Seeds can only contain digits.");
+                StdDraw.pause(ONE_SEC);
+            } else {
+                seed.append(seedling);
+                digitEntered = true;
             }
+            drawFrame(prompt + seed);
         }
-        world = new CreateWorldFeatures(Long.parseLong(seed.toString()), selectedAvatar, selectedResource);
-        world.renderWorld();
-        processMovement();
+        return Long.parseLong(seed.toString());
     }
 
-    /** Handles HUD updates */
-    private void processMovement() {
+    /** Creates or loads an open world that keeps generating as the player explores it */
+    private void createOpenWorld() {
+        long seed = readSeed("Enter seed & press S to explore (L to load): ", true);
+        if (seed < 0) {
+            drawFrame("Loading world...");
+            openWorld = ChunkedWorld.loadWorld();
+            if (openWorld == null) {
+                drawFrame("No saved open world found.");
+                StdDraw.pause(ONE_SEC);
+                drawMenu();
+                return;
+            }
+        } else {
+            drawFrame("Generating world...");
+            openWorld = new ChunkedWorld(seed, selectedAvatar, selectedResource);
+        }
+        openWorld.renderWorld();
+        processOpenWorldMovement();
+    }
+
+    /** Moves the avatar around the open world until the player saves and quits, drawing at most once a tick */
+    private void processOpenWorldMovement() {
+        keyInput = KeyInput.attach();
         boolean colonPressed = false;
-        while (true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char keyPressed = Character.toUpperCase(StdDraw.nextKeyTyped());
+        boolean quit = false;
+        long tick = System.nanoTime();
+        while (!quit) {
+            boolean moved = false;
+            int keys = keyInput.poll();
+            for (int i = 0; i < keys && !quit; i++) {
+                char keyPressed = Character.toUpperCase(keyInput.key(i));
                 if (colonPressed) {
-                    if (keyPressed == 'Q') {
-                        drawFrame("Saving and quitting game.");
-                        StdDraw.pause(ONE_SEC);
-                        world.saveWorld();
-                        System.exit(0);
-                    }
+                    quit = keyPressed == 'Q';
                     colonPressed = false;
                 } else if (keyPressed == ':') {
                     colonPressed = true;
-                } else if (keyPressed == 'V') {
-                    world.toggleLineOfSight();
-                    world.renderWorld();
                 } else {
-                    processWASD(keyPressed);
+                    processOpenWorldWASD(keyPressed);
+                    moved = true;
                 }
-                // world.renderWorld();
             }
-            world.drawHeader();
+            if (moved) {
+                openWorld.renderWorld();
+            }
+            keyInput.frameShown();
+            tick = waitForTick(tick);
         }
+        keyInput.detach();
+        saveAndQuit(openWorld::saveWorld);
     }
 
-    /** Responds to avatar movement based on the key pressed */
-    private void processWASD(char option) {
+    /** Moves the avatar around the open world based on the key pressed */
+    private void processOpenWorldWASD(char option) {
         switch (option) {
             case 'W':
-                world.getAvatar().moveUp(world.getWorld());
+                openWorld.moveAvatar(0, 1);
                 break;
             case 'A':
-                world.getAvatar().moveLeft(world.getWorld());
+                openWorld.moveAvatar(-1, 0);
                 break;
             case 'S':
-                world.getAvatar().moveDown(world.getWorld());
+                openWorld.moveAvatar(0, -1);
                 break;
             case 'D':
-                world.getAvatar().moveRight(world.getWorld());
+                openWorld.moveAvatar(1, 0);
                 break;
             default:
                 break;
         }
-        world.renderWorld();
+    }
+
+    /**
+     * Runs the game at a fixed tick. Every key typed since the last tick is applied, with runs of moves
+     * between other keys applied together, then the world is drawn once if anything changed; otherwise only
+     * the HUD is redrawn, and only if what it shows changed. L shows key-to-frame latency in the HUD.
+     */
+    private void processMovement() {
+        keyInput = KeyInput.attach();
+        StringBuilder moves = new StringBuilder();
+        boolean colonPressed = false;
+        boolean showLatency = false;
+        boolean quit = false;
+        long tick = System.nanoTime();
+        while (!quit) {
+            boolean changed = false;
+            int keys = keyInput.poll();
+            for (int i = 0; i < keys && !quit; i++) {
+                char keyPressed = Character.toUpperCase(keyInput.key(i));
+                if (colonPressed) {
+                    quit = keyPressed == 'Q';
+                    colonPressed = false;
+                } else if (keyPressed == ':') {
+                    colonPressed = true;
+                } else if (keyPressed == 'V') {
+                    applyMoves(moves);
+                    world.toggleLineOfSight();
+                    changed = true;
+                } else if (keyPressed == 'L') {
+                    showLatency = !showLatency;
+                } else {
+                    moves.append(keyPressed);
+                    changed = true;
+                }
+            }
+            applyMoves(moves);
+            world.setStatus(showLatency ? keyInput.latencySummary() : null);
+            if (changed) {
+                world.renderWorld();
+            } else {
+                world.updateHeader();
+            }
+            keyInput.frameShown();
+            tick = waitForTick(tick);
+        }
+        keyInput.detach();
+        saveAndQuit(world::saveWorld);
+    }
+
+    /** Applies the buffered moves to the game as one batch and empties the buffer */
+    private void applyMoves(StringBuilder moves) {
+        world.getState().move(moves, 0, moves.length());
+        moves.setLength(0);
+    }
+
+    /** Returns the input of the world being played, or null if no world has been played yet */
+    public KeyInput getKeyInput() {
+        return keyInput;
+    }
+
+    /** Saves with the given action and exits */
+    private void saveAndQuit(Runnable save) {
+        drawFrame("Saving and quitting game.");
+        StdDraw.pause(ONE_SEC);
+        save.run();
+        System.exit(0);
     }
 
     /** Loads a previously saved world for the player */
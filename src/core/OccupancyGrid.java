@@ -0,0 +1,92 @@
+package core;
+
+/**
+ * Tracks which tiles of a world are occupied and answers whether a rectangle is completely empty in
+ * constant time. The world is split into square blocks that each keep a summed-area table, so stamping
+ * a rectangle only has to rebuild the tables of the few blocks it touches. Tables are rebuilt lazily,
+ * the first time a block is queried after it changed.
+ */
+public class OccupancyGrid {
+    private static final int BLOCK = 32;
+    private static final int STRIDE = BLOCK + 1;
+    private final int width;
+    private final int height;
+    private final int blockRows;
+    private final boolean[] occupied;
+    /** Summed-area table of each block: sums[block * STRIDE * STRIDE + (x + 1) * STRIDE + (y + 1)] */
+    private final short[] sums;
+    private final boolean[] dirty;
+
+    public OccupancyGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int blockColumns = (width + BLOCK - 1) / BLOCK;
+        this.blockRows = (height + BLOCK - 1) / BLOCK;
+        this.occupied = new boolean[width * height];
+        this.sums = new short[blockColumns * blockRows * STRIDE * STRIDE];
+        this.dirty = new boolean[blockColumns * blockRows];
+    }
+
+    /** Marks every tile from (x0, y0) to (x1, y1) inclusive as occupied, ignoring tiles outside the world */
+    public void occupy(int x0, int y0, int x1, int y1) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, width - 1);
+        y1 = Math.min(y1, height - 1);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                occupied[x * height + y] = true;
+            }
+        }
+        for (int bx = x0 / BLOCK; x0 <= x1 && bx <= x1 / BLOCK; bx++) {
+            for (int by = y0 / BLOCK; y0 <= y1 && by <= y1 / BLOCK; by++) {
+                dirty[bx * blockRows + by] = true;
+            }
+        }
+    }
+
+    /** Returns true if no tile from (x0, y0) to (x1, y1) inclusive is occupied, ignoring tiles outside the world */
+    public boolean isEmpty(int x0, int y0, int x1, int y1) {
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, width - 1);
+        y1 = Math.min(y1, height - 1);
+        if (x0 > x1 || y0 > y1) {
+            return true;
+        }
+        for (int bx = x0 / BLOCK; bx <= x1 / BLOCK; bx++) {
+            for (int by = y0 / BLOCK; by <= y1 / BLOCK; by++) {
+                int block = bx * blockRows + by;
+                if (dirty[block]) {
+                    rebuild(bx, by);
+                }
+                // the part of the rectangle inside this block, in the block's own coordinates
+                int left = Math.max(x0 - bx * BLOCK, 0);
+                int bottom = Math.max(y0 - by * BLOCK, 0);
+                int right = Math.min(x1 - bx * BLOCK, BLOCK - 1) + 1;
+                int top = Math.min(y1 - by * BLOCK, BLOCK - 1) + 1;
+                int base = block * STRIDE * STRIDE;
+                int count = sums[base + right * STRIDE + top] - sums[base + left * STRIDE + top]
+                        - sums[base + right * STRIDE + bottom] + sums[base + left * STRIDE + bottom];
+                if (count != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void rebuild(int bx, int by) {
+        int base = (bx * blockRows + by) * STRIDE * STRIDE;
+        for (int x = 0; x < BLOCK; x++) {
+            for (int y = 0; y < BLOCK; y++) {
+                int worldX = bx * BLOCK + x;
+                int worldY = by * BLOCK + y;
+                int cell = worldX < width && worldY < height && occupied[worldX * height + worldY] ? 1 : 0;
+                sums[base + (x + 1) * STRIDE + (y + 1)] = (short) (cell + sums[base + x * STRIDE + (y + 1)]
+                        + sums[base + (x + 1) * STRIDE + y] - sums[base + x * STRIDE + y]);
+            }
+        }
+        dirty[bx * blockRows + by] = false;
+    }
+}
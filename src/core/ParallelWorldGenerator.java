@@ -0,0 +1,170 @@
+package core;
+
+import tileengine.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates large worlds on several threads. The world is cut into a grid of regions that are generated
+ * independently, each by its own BareBonesWorld, and then pasted into one TileGrid. Neighbouring regions
+ * share a portal on their common edge that both route a hallway to, which joins the hallways of the
+ * regions into one connected world.
+ *
+ * Everything random about the layout, the seed of every region and the position of every portal, is
+ * drawn from a SplittableRandom in row-major order before any region is generated. The regions then
+ * only depend on their own seed and portals, so the world comes out the same no matter how many threads
+ * generate it or in which order the regions finish.
+ */
+public class ParallelWorldGenerator {
+    public static final int DEFAULT_REGION_SIZE = 64;
+    /** Regions smaller than this cannot fit rooms between their portals */
+    private static final int MIN_REGION_SIZE = 24;
+    /** Portals stay this far from the corners of a region so that they never meet another edge's portal */
+    private static final int PORTAL_MARGIN = 8;
+    private final int WIDTH;
+    private final int HEIGHT;
+    private final ArrayList<TETile> RESOURCE;
+    private final HallwayStrategy HALLWAY_STRATEGY;
+    private final double EXTRA_HALLWAYS;
+    /** Left column and bottom row of each region column and row; the last entry is the world's size */
+    private final int[] COLUMN_STARTS;
+    private final int[] ROW_STARTS;
+    private final long[] REGION_SEEDS;
+    /** Portal offset along the east edge of each region, or -1 on the world's east edge */
+    private final int[] EAST_PORTALS;
+    /** Portal offset along the north edge of each region, or -1 on the world's north edge */
+    private final int[] NORTH_PORTALS;
+
+    public ParallelWorldGenerator(long seed, int width, int height, ArrayList<TETile> resource) {
+        this(seed, width, height, resource, DEFAULT_REGION_SIZE, HallwayStrategy.MST, 0);
+    }
+
+    /**
+     * Plans a world split into regions of about regionSize by regionSize tiles. Leftover tiles that do not
+     * make up a whole region are added to the last region of their row or column.
+     */
+    public ParallelWorldGenerator(long seed, int width, int height, ArrayList<TETile> resource, int regionSize,
+                                  HallwayStrategy strategy, double extraHallways) {
+        if (regionSize < MIN_REGION_SIZE) {
+            throw new IllegalArgumentException("Regions must be at least " + MIN_REGION_SIZE + " tiles wide.");
+        }
+        this.WIDTH = width;
+        this.HEIGHT = height;
+        this.RESOURCE = resource;
+        this.HALLWAY_STRATEGY = strategy;
+        this.EXTRA_HALLWAYS = extraHallways;
+        this.COLUMN_STARTS = regionStarts(width, regionSize);
+        this.ROW_STARTS = regionStarts(height, regionSize);
+        int regions = regionColumns() * regionRows();
+        this.REGION_SEEDS = new long[regions];
+        this.EAST_PORTALS = new int[regions];
+        this.NORTH_PORTALS = new int[regions];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int row = 0; row < regionRows(); row++) {
+            for (int column = 0; column < regionColumns(); column++) {
+                int region = row * regionColumns() + column;
+                REGION_SEEDS[region] = random.split().nextLong();
+                EAST_PORTALS[region] = column == regionColumns() - 1 ? -1
+                        : random.nextInt(PORTAL_MARGIN, regionHeight(row) - PORTAL_MARGIN);
+                NORTH_PORTALS[region] = row == regionRows() - 1 ? -1
+                        : random.nextInt(PORTAL_MARGIN, regionWidth(column) - PORTAL_MARGIN);
+            }
+        }
+    }
+
+    private static int[] regionStarts(int size, int regionSize) {
+        int count = Math.max(size / regionSize, 1);
+        int[] starts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            starts[i] = i * regionSize;
+        }
+        starts[count] = size;
+        return starts;
+    }
+
+    private int regionColumns() {
+        return COLUMN_STARTS.length - 1;
+    }
+
+    private int regionRows() {
+        return ROW_STARTS.length - 1;
+    }
+
+    private int regionWidth(int column) {
+        return COLUMN_STARTS[column + 1] - COLUMN_STARTS[column];
+    }
+
+    private int regionHeight(int row) {
+        return ROW_STARTS[row + 1] - ROW_STARTS[row];
+    }
+
+    /** Generates the world on the common fork/join pool */
+    public TileGrid generate() {
+        return generate(ForkJoinPool.commonPool());
+    }
+
+    /** Generates the world, running the regions on the given pool */
+    public TileGrid generate(ForkJoinPool pool) {
+        TileGrid[] regions = new TileGrid[REGION_SEEDS.length];
+        pool.invoke(new RegionTask(regions, 0, regions.length));
+
+        TileGrid world = new TileGrid(WIDTH, HEIGHT, RESOURCE.getLast());
+        for (int region = 0; region < regions.length; region++) {
+            int column = region % regionColumns();
+            int row = region / regionColumns();
+            world.paste(regions[region], COLUMN_STARTS[column], ROW_STARTS[row]);
+        }
+        return world;
+    }
+
+    /** Generates a single region from its seed and the portals on its four edges */
+    private TileGrid generateRegion(int region) {
+        int column = region % regionColumns();
+        int row = region / regionColumns();
+        int regionWidth = regionWidth(column);
+        int regionHeight = regionHeight(row);
+        List<Point> portals = new ArrayList<>(4);
+        if (column > 0) {
+            portals.add(new Point(0, EAST_PORTALS[region - 1]));
+        }
+        if (EAST_PORTALS[region] >= 0) {
+            portals.add(new Point(regionWidth - 1, EAST_PORTALS[region]));
+        }
+        if (row > 0) {
+            portals.add(new Point(NORTH_PORTALS[region - regionColumns()], 0));
+        }
+        if (NORTH_PORTALS[region] >= 0) {
+            portals.add(new Point(NORTH_PORTALS[region], regionHeight - 1));
+        }
+        return new BareBonesWorld(REGION_SEEDS[region], regionWidth, regionHeight, RESOURCE, HALLWAY_STRATEGY,
+                EXTRA_HALLWAYS, 0, portals).initializeGrid();
+    }
+
+    /** Generates a range of regions, splitting the range in half until only one region is left */
+    private class RegionTask extends RecursiveAction {
+        private final TileGrid[] regions;
+        private final int from;
+        private final int to;
+
+        RegionTask(TileGrid[] regions, int from, int to) {
+            this.regions = regions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                regions[from] = generateRegion(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RegionTask(regions, from, middle), new RegionTask(regions, middle, to));
+        }
+    }
+}
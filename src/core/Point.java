@@ -1,7 +1,6 @@
 package core;
 
 import java.io.Serializable;
-import java.util.Objects;
 
 public class Point implements Serializable {
     private final int x;
@@ -26,7 +25,7 @@ public class Point implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return 31 * x + y;
     }
 
     @Override
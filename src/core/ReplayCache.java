@@ -0,0 +1,232 @@
+package core;
+
+import tileengine.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers games part way through replaying their moves, so that replaying another string of moves with
+ * the same beginning can pick up where the earlier replay left off instead of generating the world and
+ * replaying every move again.
+ *
+ * For every seed, resource pack and avatar there is a trie whose edges are chunks of moves. The first
+ * chunk is FIRST_SNAPSHOT moves long and every later chunk ends at least twice as far into the moves as
+ * the one before it, so a replay of n moves leaves at most about log2(n) snapshots behind. A chunk never
+ * ends inside a run of the same key, so runs are still applied as a single move. The node reached by
+ * following a string of moves holds a snapshot of the game after those moves. A snapshot is never played
+ * on directly; replays always start from a copy of it.
+ *
+ * The budget covers the snapshots and the trie nodes along with the chunks they hold. It is kept while a
+ * replay is running, not only after it: before a snapshot is stored, snapshots are evicted least recently
+ * used first until it fits, and a replay stops storing snapshots once nothing more can be evicted. Trie
+ * nodes that are left with no snapshot and no children are removed along with their snapshots.
+ */
+public class ReplayCache {
+    /** How many moves come before the first snapshot after the start of the game */
+    public static final int FIRST_SNAPSHOT = 8;
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    /** Roughly how many bytes a trie node takes up besides its chunk and snapshot, counting its map entries */
+    private static final long NODE_BYTES = 256;
+    private final long MAX_BYTES;
+    private final Map<String, Node> ROOTS = new HashMap<>();
+    /** Every node that holds a snapshot, from least to most recently used */
+    private final LinkedHashMap<Node, Node> SNAPSHOTS = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private long largestBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public ReplayCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public ReplayCache(long maxBytes) {
+        this.MAX_BYTES = maxBytes;
+    }
+
+    /** A game after replaying some string of moves */
+    private static class Node {
+        private final Node parent;
+        private final String chunk;
+        private final Map<String, Node> children = new HashMap<>();
+        private WorldState snapshot;
+
+        Node(Node parent, String chunk) {
+            this.parent = parent;
+            this.chunk = chunk;
+        }
+
+        long sizeInBytes() {
+            return NODE_BYTES + chunk.length();
+        }
+    }
+
+    /**
+     * Returns the game made from the given seed, avatar and resource pack after the given moves. The result
+     * belongs to the caller, who may keep playing on it.
+     */
+    public synchronized WorldState replay(long seed, TETile avatar, String resource, String moves) {
+        String rootKey = seed + "/" + resource + "/" + avatar.character();
+
+        // follow the trie down to the deepest snapshot on the way to the moves
+        Node node = ROOTS.get(rootKey);
+        Node deepest = node != null && node.snapshot != null ? node : null;
+        int replayed = 0;
+        int start = 0;
+        int end = chunkEnd(moves, start);
+        while (node != null && end > 0) {
+            node = node.children.get(moves.substring(start, end));
+            if (node != null && node.snapshot != null) {
+                deepest = node;
+                replayed = end;
+            }
+            start = end;
+            end = chunkEnd(moves, start);
+        }
+        WorldState state;
+        if (deepest == null) {
+            state = new WorldState(seed, avatar, resource);
+            node = storeRoot(rootKey, state);
+            misses++;
+        } else {
+            SNAPSHOTS.get(deepest);
+            state = deepest.snapshot.copy();
+            node = deepest;
+            hits++;
+        }
+
+        // replay the rest a chunk at a time, leaving a snapshot behind after every chunk while they fit
+        start = replayed;
+        end = chunkEnd(moves, start);
+        while (end > 0) {
+            state.move(moves, start, end);
+            if (node != null) {
+                node = storeChild(node, moves.substring(start, end), state);
+            }
+            start = end;
+            end = chunkEnd(moves, start);
+        }
+        state.move(moves, start, moves.length());
+        return state;
+    }
+
+    /**
+     * Returns where the chunk of moves starting at the given position ends, or -1 if it would reach the end
+     * of the moves, since whether the last run of keys goes on is not known until there is a key after it.
+     */
+    private static int chunkEnd(String moves, int start) {
+        int end = Math.max(FIRST_SNAPSHOT, 2 * start);
+        while (end < moves.length() && moves.charAt(end) == moves.charAt(end - 1)) {
+            end++;
+        }
+        return end < moves.length() ? end : -1;
+    }
+
+    /** Stores a copy of a newly generated game, returning its node, or null if it does not fit the budget */
+    private Node storeRoot(String rootKey, WorldState state) {
+        if (!makeRoom(NODE_BYTES + rootKey.length() + state.sizeInBytes(), null)) {
+            return null;
+        }
+        Node root = ROOTS.get(rootKey);
+        if (root == null) {
+            root = new Node(null, rootKey);
+            ROOTS.put(rootKey, root);
+            add(root.sizeInBytes());
+        }
+        store(root, state.copy());
+        return root;
+    }
+
+    /**
+     * Stores a copy of the game after the given chunk of moves below the given node, returning the child's
+     * node, or null if it does not fit the budget.
+     */
+    private Node storeChild(Node parent, String chunk, WorldState state) {
+        Node child = parent.children.get(chunk);
+        if (child != null && child.snapshot != null) {
+            SNAPSHOTS.get(child);
+            return child;
+        }
+        // the parent is kept so the path stays in the trie; the child may be pruned while making room
+        if (!makeRoom(NODE_BYTES + chunk.length() + state.sizeInBytes(), parent)) {
+            return null;
+        }
+        child = parent.children.get(chunk);
+        if (child == null) {
+            child = new Node(parent, chunk);
+            parent.children.put(chunk, child);
+            add(child.sizeInBytes());
+        }
+        store(child, state.copy());
+        return child;
+    }
+
+    private void store(Node node, WorldState snapshot) {
+        node.snapshot = snapshot;
+        SNAPSHOTS.put(node, node);
+        add(snapshot.sizeInBytes());
+    }
+
+    private void add(long size) {
+        bytes += size;
+        largestBytes = Math.max(largestBytes, bytes);
+    }
+
+    /**
+     * Evicts snapshots, least recently used first and never the given node's, until the given number of
+     * bytes more fits the budget.
+     * @return whether they fit
+     */
+    private boolean makeRoom(long needed, Node keep) {
+        Iterator<Node> eldest = SNAPSHOTS.keySet().iterator();
+        while (bytes + needed > MAX_BYTES && eldest.hasNext()) {
+            Node node = eldest.next();
+            if (node == keep) {
+                continue;
+            }
+            eldest.remove();
+            bytes -= node.snapshot.sizeInBytes();
+            node.snapshot = null;
+            while (node.snapshot == null && node.children.isEmpty()) {
+                bytes -= node.sizeInBytes();
+                if (node.parent == null) {
+                    ROOTS.remove(node.chunk);
+                    break;
+                }
+                node.parent.children.remove(node.chunk);
+                node = node.parent;
+            }
+        }
+        return bytes + needed <= MAX_BYTES;
+    }
+
+    /** Drops every snapshot */
+    public synchronized void clear() {
+        ROOTS.clear();
+        SNAPSHOTS.clear();
+        bytes = 0;
+    }
+
+    /** Returns roughly how many bytes the cached snapshots and the trie holding them take up */
+    public synchronized long sizeInBytes() {
+        return bytes;
+    }
+
+    /** Returns the most bytes the cache has taken up at any point, including in the middle of a replay */
+    public synchronized long largestSizeInBytes() {
+        return largestBytes;
+    }
+
+    /** Returns how many replays started from a snapshot */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Returns how many replays had to generate their world from scratch */
+    public synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,94 @@
+package core;
+
+import tileengine.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Generates many worlds at once without opening a window. Each seed becomes its own task on the executor,
+ * and finished worlds are handed back in the order they complete rather than the order of the seeds, so
+ * slow worlds never hold up the ones behind them.
+ */
+public class WorldBatch {
+    private final Executor EXECUTOR;
+
+    /** Creates a batch that runs on the common fork/join pool, which has a thread for every core */
+    public WorldBatch() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public WorldBatch(Executor executor) {
+        this.EXECUTOR = executor;
+    }
+
+    /** Receives each world as soon as it is generated */
+    public interface Listener {
+        /** Called on the thread that called generate, so implementations do not need to be thread safe */
+        void worldGenerated(int index, long seed, TETile[][] world);
+    }
+
+    /** How many worlds a batch generated and how long it took */
+    public record Stats(int worlds, long elapsedNanos) {
+        public double worldsPerSecond() {
+            return elapsedNanos == 0 ? 0 : worlds * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d worlds in %.1f ms (%.1f worlds/s)", worlds, elapsedNanos / 1e6,
+                    worldsPerSecond());
+        }
+    }
+
+    /** Generates a world for every seed and returns them in the same order as the seeds */
+    public TETile[][][] generate(long[] seeds, String resourcePack, int width, int height) {
+        TETile[][][] worlds = new TETile[seeds.length][][];
+        generate(seeds, resourcePack, width, height, (index, seed, world) -> worlds[index] = world);
+        return worlds;
+    }
+
+    /**
+     * Generates a world for every seed, passing each one to the listener as soon as it is done.
+     * If any world fails to generate, the worlds that have not started yet are cancelled and the
+     * failure is rethrown.
+     */
+    public Stats generate(long[] seeds, String resourcePack, int width, int height, Listener listener) {
+        ArrayList<TETile> resource = new ResourcePack(resourcePack).chooseResourcePack();
+        if (resource.isEmpty()) {
+            throw new IllegalArgumentException("Unknown resource pack: " + resourcePack);
+        }
+        long start = System.nanoTime();
+        CompletionService<Integer> completed = new ExecutorCompletionService<>(EXECUTOR);
+        TETile[][][] results = new TETile[seeds.length][][];
+        List<Future<Integer>> futures = new ArrayList<>(seeds.length);
+        for (int i = 0; i < seeds.length; i++) {
+            int index = i;
+            futures.add(completed.submit(() -> {
+                results[index] = new BareBonesWorld(seeds[index], width, height, resource).initializeWorld();
+                return index;
+            }));
+        }
+        try {
+            for (int i = 0; i < seeds.length; i++) {
+                int index = completed.take().get();
+                listener.worldGenerated(index, seeds[index], results[index]);
+                results[index] = null;
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating worlds.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Failed to generate a world.", e.getCause());
+        }
+        return new Stats(seeds.length, System.nanoTime() - start);
+    }
+}
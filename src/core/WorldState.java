@@ -0,0 +1,251 @@
+package core;
+
+import tileengine.*;
+import utils.*;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Everything about a game that is not drawing: the world's tiles, the avatar, whether line of sight is
+ * on and which tiles have been explored with it on. None of it touches StdDraw, so games can be
+ * simulated, saved and loaded without opening a window.
+ */
+public class WorldState implements Serializable {
+    public static final int WIDTH = 60;
+    public static final int HEIGHT = 45;
+    /** The first four bytes of every save file, "BYOW" in ASCII */
+    private static final int SAVE_MAGIC = 0x42594F57;
+    private static final short SAVE_VERSION = 1;
+    private static final Path SAVE_FILE = Path.of("./byow.txt");
+    /** The most tiles a saved world may have, so a damaged header cannot ask for a huge grid */
+    private static final long MAX_SAVED_TILES = 1L << 24;
+    private final long SEED;
+    private final TileGrid WORLD;
+    private final Avatar AVATAR;
+    private final ExploredMap EXPLORED;
+    private boolean lineOfSight = false;
+
+    public WorldState(long seed, TETile avatar, String resource) {
+        this.SEED = seed;
+        ResourcePack resourcePack = new ResourcePack(resource);
+        ArrayList<TETile> selectedResource = resourcePack.chooseResourcePack();
+        BareBonesWorld bareBonesWorld = new BareBonesWorld(seed, WIDTH, HEIGHT, selectedResource);
+        this.WORLD = bareBonesWorld.initializeGrid();
+        this.AVATAR = createAvatar(bareBonesWorld, avatar, new Random(seed));
+        this.EXPLORED = new ExploredMap(WORLD.width(), WORLD.height());
+    }
+
+    private WorldState(long seed, TileGrid world, Avatar avatar, ExploredMap explored, boolean lineOfSight) {
+        this.SEED = seed;
+        this.WORLD = world;
+        this.AVATAR = avatar;
+        this.EXPLORED = explored;
+        this.lineOfSight = lineOfSight;
+    }
+
+    /** Creates the avatar and places it in one of the rooms, picked using the world's seed */
+    private Avatar createAvatar(BareBonesWorld bareBonesWorld, TETile avatar, Random random) {
+        List<Point> allRoomFloors = bareBonesWorld.getAllRoomFloors();
+        Point randomRoom = allRoomFloors.get(RandomUtils.uniform(random, 0, allRoomFloors.size()));
+        TETile roomFloor = WORLD.get(randomRoom.getX(), randomRoom.getY());
+        return new Avatar(randomRoom.getX(), randomRoom.getY(), roomFloor, avatar);
+    }
+
+    /** Returns a copy of this game that can be played on without changing this one */
+    public WorldState copy() {
+        return new WorldState(SEED, WORLD.copy(), AVATAR.copy(), EXPLORED.copy(), lineOfSight);
+    }
+
+    /** Returns roughly how many bytes of memory this game takes up */
+    public long sizeInBytes() {
+        return (long) WORLD.width() * WORLD.height() + WORLD.paletteSize() * 8L + EXPLORED.sizeInBytes() + 128;
+    }
+
+    /** Draws the avatar onto the world's tiles at its current position */
+    public void placeAvatar() {
+        WORLD.set(AVATAR.getX(), AVATAR.getY(), AVATAR.getCharacter());
+    }
+
+    /** Moves the avatar one tile for W, A, S or D, and ignores any other key */
+    public void move(char key) {
+        move(key, 1);
+    }
+
+    /**
+     * Moves the avatar for every key from start up to end, as if they were typed one at a time. Runs of the
+     * same key are applied as a single move.
+     */
+    public void move(CharSequence keys, int start, int end) {
+        int i = start;
+        while (i < end) {
+            char key = keys.charAt(i);
+            int run = 1;
+            while (i + run < end && keys.charAt(i + run) == key) {
+                run++;
+            }
+            move(key, run);
+            i += run;
+        }
+    }
+
+    private void move(char key, int times) {
+        switch (key) {
+            case 'W':
+                AVATAR.move(0, 1, times, WORLD);
+                break;
+            case 'A':
+                AVATAR.move(-1, 0, times, WORLD);
+                break;
+            case 'S':
+                AVATAR.move(0, -1, times, WORLD);
+                break;
+            case 'D':
+                AVATAR.move(1, 0, times, WORLD);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Saves the game to ./byow.txt in a compact binary format: a header of SAVE_MAGIC, SAVE_VERSION, the
+     * seed and the world's size, then the world's tiles as written by TileGrid.writeTo, the avatar's
+     * position and tiles as palette indices, whether line of sight is on, and the explored tiles as
+     * written by ExploredMap.writeTo.
+     */
+    public void saveWorld() {
+        saveWorld(SAVE_FILE);
+    }
+
+    /**
+     * Saves the game to the given file instead of ./byow.txt. A game that cannot be written in the format,
+     * for example because it holds more than 256 distinct tiles, is reported and leaves the file as it was.
+     */
+    public void saveWorld(Path file) {
+        ByteBuffer buffer;
+        try {
+            buffer = encode();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            System.out.println("Error saving the world: " + e.getMessage());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving the world: " + e.getMessage());
+        }
+    }
+
+    /** Loads the game saved by saveWorld, or returns null if there is none or it cannot be read */
+    public static WorldState loadWorld() {
+        return loadWorld(SAVE_FILE);
+    }
+
+    /** Loads a game saved to the given file, or returns null if there is none or it cannot be read */
+    public static WorldState loadWorld(Path file) {
+        if (!file.toFile().exists()) {
+            System.out.println("Save file not found.");
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the whole file is in the buffer
+            }
+            buffer.flip();
+            WorldState loadedWorld = decode(buffer);
+            loadedWorld.placeAvatar();
+            return loadedWorld;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.out.println("Error loading the world: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ByteBuffer encode() {
+        // the avatar's tiles are written as palette indices, so they are added to the palette of a copy,
+        // which leaves the game being played as it is
+        TileGrid world = WORLD.copy();
+        int character = world.paletteIndexOf(AVATAR.getCharacter());
+        int previousTile = world.paletteIndexOf(AVATAR.getPreviousTile());
+        ByteBuffer buffer = ByteBuffer.allocate(64 + world.maxEncodedSize() + EXPLORED.maxEncodedSize());
+        buffer.putInt(SAVE_MAGIC);
+        buffer.putShort(SAVE_VERSION);
+        buffer.putLong(SEED);
+        buffer.putInt(world.width());
+        buffer.putInt(world.height());
+        world.writeTo(buffer);
+        buffer.putInt(AVATAR.getX());
+        buffer.putInt(AVATAR.getY());
+        buffer.put((byte) character);
+        buffer.put((byte) previousTile);
+        buffer.put((byte) (lineOfSight ? 1 : 0));
+        EXPLORED.writeTo(buffer);
+        return buffer.flip();
+    }
+
+    private static WorldState decode(ByteBuffer buffer) {
+        if (buffer.remaining() < 4 || buffer.getInt() != SAVE_MAGIC) {
+            throw new IllegalArgumentException("not a saved game");
+        }
+        short version = buffer.getShort();
+        if (version != SAVE_VERSION) {
+            throw new IllegalArgumentException("unsupported save version " + version);
+        }
+        long seed = buffer.getLong();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_SAVED_TILES) {
+            throw new IllegalArgumentException("bad world size " + width + "x" + height);
+        }
+        TileGrid world = TileGrid.readFrom(buffer, width, height);
+        int x = buffer.getInt();
+        int y = buffer.getInt();
+        int character = buffer.get() & 0xFF;
+        int previousTile = buffer.get() & 0xFF;
+        if (!world.inBounds(x, y) || character >= world.paletteSize() || previousTile >= world.paletteSize()) {
+            throw new IllegalArgumentException("bad avatar position or tiles");
+        }
+        Avatar avatar = new Avatar(x, y, world.paletteTile(previousTile), world.paletteTile(character));
+        boolean lineOfSight = buffer.get() != 0;
+        ExploredMap explored = ExploredMap.readFrom(buffer, width, height);
+        return new WorldState(seed, world, avatar, explored, lineOfSight);
+    }
+
+    /** Returns the seed the world was generated from */
+    public long getSeed() {
+        return SEED;
+    }
+
+    /** Returns the world's tiles, which the avatar moves through */
+    public TileGrid getGrid() {
+        return WORLD;
+    }
+
+    public Avatar getAvatar() {
+        return AVATAR;
+    }
+
+    /** Returns the tiles the avatar has seen while line of sight was on */
+    public ExploredMap getExplored() {
+        return EXPLORED;
+    }
+
+    public boolean isLineOfSight() {
+        return lineOfSight;
+    }
+
+    public void toggleLineOfSight() {
+        lineOfSight = !lineOfSight;
+    }
+}
@@ -0,0 +1,96 @@
+package tileengine;
+
+import java.io.Serializable;
+
+/**
+ * The rectangle of a world that is shown on the screen. The camera follows a target, usually the
+ * avatar, by scrolling only once the target comes within a margin of the camera's edge, so the view
+ * does not jump on every step. It never scrolls past the edges of the world.
+ */
+public class Camera implements Serializable {
+    private final int width;
+    private final int height;
+    private final int marginX;
+    private final int marginY;
+    private int left;
+    private int bottom;
+
+    /**
+     * Creates a camera showing the given number of tiles, starting at the bottom left of the world.
+     * @param width width of the view in tiles
+     * @param height height of the view in tiles
+     */
+    public Camera(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.marginX = width / 4;
+        this.marginY = height / 4;
+    }
+
+    /**
+     * Scrolls the camera just far enough to keep the target at least a quarter of the view away from
+     * its edges, without showing anything outside the world.
+     * @param x x coordinate of the target in the world
+     * @param y y coordinate of the target in the world
+     * @param worldWidth width of the world in tiles
+     * @param worldHeight height of the world in tiles
+     */
+    public void follow(int x, int y, int worldWidth, int worldHeight) {
+        if (x < left + marginX) {
+            left = x - marginX;
+        } else if (x >= left + width - marginX) {
+            left = x - width + marginX + 1;
+        }
+        if (y < bottom + marginY) {
+            bottom = y - marginY;
+        } else if (y >= bottom + height - marginY) {
+            bottom = y - height + marginY + 1;
+        }
+        left = Math.max(0, Math.min(left, worldWidth - width));
+        bottom = Math.max(0, Math.min(bottom, worldHeight - height));
+    }
+
+    /**
+     * Moves the bottom left corner of the camera to the given tile.
+     * @param x x coordinate in the world
+     * @param y y coordinate in the world
+     */
+    public void moveTo(int x, int y) {
+        this.left = x;
+        this.bottom = y;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Returns the x coordinate in the world of the camera's left column. */
+    public int left() {
+        return left;
+    }
+
+    /** Returns the y coordinate in the world of the camera's bottom row. */
+    public int bottom() {
+        return bottom;
+    }
+
+    /**
+     * Converts an x coordinate on the screen, in tiles, to an x coordinate in the world.
+     * @param screenX x coordinate on the screen
+     */
+    public int worldX(int screenX) {
+        return left + screenX;
+    }
+
+    /**
+     * Converts a y coordinate on the screen, in tiles, to a y coordinate in the world.
+     * @param screenY y coordinate on the screen
+     */
+    public int worldY(int screenY) {
+        return bottom + screenY;
+    }
+}
@@ -0,0 +1,171 @@
+package tileengine;
+
+import utils.VarInts;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * The tiles of a world that have ever been seen, one bit per tile, packed the same way as TileGrid's
+ * cells. Tiles are added from a FieldOfView after it is updated, a word at a time and only within its
+ * radius, so keeping the map up to date costs the same on any size of world. In memory and when
+ * serialized it takes about one bit per tile, and writeTo shrinks it further to the lengths of its runs.
+ */
+public class ExploredMap implements Serializable {
+    private final int width;
+    private final int height;
+    private final long[] bits;
+
+    /**
+     * Creates a map of a world of the given size in which nothing has been seen yet.
+     * @param width width of the world in tiles
+     * @param height height of the world in tiles
+     */
+    public ExploredMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bits = new long[(int) (((long) width * height + 63) / 64)];
+    }
+
+    private ExploredMap(ExploredMap other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.bits = other.bits.clone();
+    }
+
+    /** Returns a copy of this map that can be changed without changing this one */
+    public ExploredMap copy() {
+        return new ExploredMap(this);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns whether the given tile has ever been seen.
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public boolean isExplored(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        int index = x * height + y;
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks every tile the field of view can currently see as explored.
+     * @param view a field of view last updated on a world of the same size as this map
+     */
+    public void reveal(FieldOfView view) {
+        long[] visible = view.bits();
+        int radius = view.radius();
+        int bottom = Math.max(0, view.originY() - radius);
+        int top = Math.min(height - 1, view.originY() + radius);
+        if (visible.length < bits.length || bottom > top) {
+            return;
+        }
+        for (int x = Math.max(0, view.originX() - radius); x <= Math.min(width - 1, view.originX() + radius); x++) {
+            // this column's tiles within the radius are the bits from first to last
+            int first = x * height + bottom;
+            int last = x * height + top;
+            for (int word = first >>> 6; word <= last >>> 6; word++) {
+                long mask = -1L;
+                if (word == first >>> 6) {
+                    mask &= -1L << first;
+                }
+                if (word == last >>> 6) {
+                    mask &= -1L >>> (63 - (last & 63));
+                }
+                bits[word] |= visible[word] & mask;
+            }
+        }
+    }
+
+    /** Returns the most bytes writeTo can take for this map: at worst a run of length one for every tile */
+    public int maxEncodedSize() {
+        return VarInts.MAX_BYTES * (width * height + 1);
+    }
+
+    /**
+     * Writes the map at the buffer's position as the lengths of alternating runs of unexplored and explored
+     * tiles, starting with unexplored, so the areas explored in a typical game take a few bytes each. Use
+     * maxEncodedSize to size the buffer.
+     * @param out the buffer to write to
+     */
+    public void writeTo(ByteBuffer out) {
+        int cells = width * height;
+        int start = 0;
+        boolean explored = false;
+        while (start < cells) {
+            int end = nextBit(start, !explored, cells);
+            VarInts.put(out, end - start);
+            start = end;
+            explored = !explored;
+        }
+    }
+
+    /**
+     * Reads a map of the given size written by writeTo from the buffer's position.
+     * @param in the buffer to read from
+     * @param width width of the world in tiles
+     * @param height height of the world in tiles
+     * @throws IllegalArgumentException if the runs do not add up to the size of the world
+     */
+    public static ExploredMap readFrom(ByteBuffer in, int width, int height) {
+        ExploredMap map = new ExploredMap(width, height);
+        int cells = width * height;
+        int start = 0;
+        boolean explored = false;
+        while (start < cells) {
+            int run = VarInts.get(in);
+            if (run > cells - start) {
+                throw new IllegalArgumentException("Bad run of " + run + " tiles at position " + start + ".");
+            }
+            if (explored && run > 0) {
+                map.setRange(start, start + run);
+            }
+            start += run;
+            explored = !explored;
+        }
+        return map;
+    }
+
+    /** Returns the first position from start on whose bit is the given value, or cells if there is none */
+    private int nextBit(int start, boolean value, int cells) {
+        int word = start >>> 6;
+        long bitsLeft = (value ? bits[word] : ~bits[word]) & (-1L << start);
+        while (bitsLeft == 0) {
+            if (++word == bits.length) {
+                return cells;
+            }
+            bitsLeft = value ? bits[word] : ~bits[word];
+        }
+        return Math.min(cells, word * 64 + Long.numberOfTrailingZeros(bitsLeft));
+    }
+
+    /** Sets the bits of every position from start up to end */
+    private void setRange(int start, int end) {
+        for (int word = start >>> 6; word <= (end - 1) >>> 6; word++) {
+            long mask = -1L;
+            if (word == start >>> 6) {
+                mask &= -1L << start;
+            }
+            if (word == (end - 1) >>> 6) {
+                mask &= -1L >>> (63 - ((end - 1) & 63));
+            }
+            bits[word] |= mask;
+        }
+    }
+
+    /** Returns roughly how many bytes of memory this map takes up */
+    public long sizeInBytes() {
+        return bits.length * 8L + 32;
+    }
+}
@@ -0,0 +1,205 @@
+package tileengine;
+
+/**
+ * The tiles of a world that can be seen from one tile, found by recursive shadowcasting: each of the
+ * eight octants around the viewer is scanned row by row outward, and every opaque tile casts a shadow
+ * that hides the tiles behind it. Tiles outside the world count as opaque.
+ *
+ * Visibility is kept as one bit per tile, packed the same way as TileGrid's cells. The bits are reused
+ * from one update to the next, and an update only clears and scans the square within the radius of the
+ * viewer, so its cost depends on the radius and not on the size of the world.
+ */
+public class FieldOfView {
+    /** How each octant's row and column map to world x and y: xx, xy, yx and yy for octants 0 to 7 */
+    private static final int[][] OCTANTS = {
+        {1, 0, 0, -1, -1, 0, 0, 1},
+        {0, 1, -1, 0, 0, -1, 1, 0},
+        {0, 1, 1, 0, 0, -1, -1, 0},
+        {1, 0, 0, 1, -1, 0, 0, -1},
+    };
+    private long[] visible = new long[0];
+    private boolean[] opaque = new boolean[0];
+    private TileGrid world;
+    private int radius;
+    private int originX;
+    private int originY;
+    private boolean stale = true;
+
+    /**
+     * Creates a field of view that sees up to the given number of tiles away.
+     * @param radius how far the viewer can see, in tiles
+     */
+    public FieldOfView(int radius) {
+        this.radius = checkRadius(radius);
+    }
+
+    public int radius() {
+        return radius;
+    }
+
+    /**
+     * Changes how far the viewer can see. The next update recomputes the field of view.
+     * @param radius how far the viewer can see, in tiles
+     */
+    public void setRadius(int radius) {
+        checkRadius(radius);
+        clear();
+        this.radius = radius;
+        this.stale = true;
+    }
+
+    private static int checkRadius(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("The radius cannot be negative: " + radius);
+        }
+        return radius;
+    }
+
+    /**
+     * Makes the next update recompute the field of view even if the viewer has not moved, for example
+     * because tiles in the world changed.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Recomputes what can be seen from the given tile of the world, unless nothing has changed since the
+     * last update.
+     * @param world the world being looked at
+     * @param x x coordinate of the viewer
+     * @param y y coordinate of the viewer
+     * @return whether the field of view was recomputed
+     */
+    public boolean update(TileGrid world, int x, int y) {
+        if (!stale && world == this.world && x == originX && y == originY) {
+            return false;
+        }
+        clear();
+        int cells = world.width() * world.height();
+        if (visible.length * 64L < cells) {
+            visible = new long[(cells + 63) / 64];
+        }
+        this.world = world;
+        this.originX = x;
+        this.originY = y;
+        this.stale = false;
+        if (!world.inBounds(x, y)) {
+            return true;
+        }
+        cacheOpacity(world);
+        setVisible(x, y);
+        for (int octant = 0; octant < 8; octant++) {
+            castLight(1, 1.0, 0.0, OCTANTS[0][octant], OCTANTS[1][octant], OCTANTS[2][octant],
+                    OCTANTS[3][octant]);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the given tile could be seen at the last update.
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public boolean isVisible(int x, int y) {
+        if (world == null || !world.inBounds(x, y)) {
+            return false;
+        }
+        int index = x * world.height() + y;
+        return (visible[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** The visibility bits, packed like TileGrid's cells; only the square within the radius is meaningful */
+    long[] bits() {
+        return visible;
+    }
+
+    int originX() {
+        return originX;
+    }
+
+    int originY() {
+        return originY;
+    }
+
+    /** Looks up whether each tile in the world's palette is opaque, so scanning never goes through a tile */
+    private void cacheOpacity(TileGrid world) {
+        if (opaque.length < world.paletteSize()) {
+            opaque = new boolean[world.paletteSize()];
+        }
+        for (int i = 0; i < world.paletteSize(); i++) {
+            opaque[i] = TileProperties.isOpaque(world.paletteTile(i));
+        }
+    }
+
+    private boolean isOpaque(int x, int y) {
+        return !world.inBounds(x, y) || opaque[world.paletteIndex(x, y)];
+    }
+
+    private void setVisible(int x, int y) {
+        int index = x * world.height() + y;
+        visible[index >>> 6] |= 1L << index;
+    }
+
+    /** Clears the bits of every tile the last update could have seen */
+    private void clear() {
+        if (world == null) {
+            return;
+        }
+        int height = world.height();
+        int bottom = Math.max(0, originY - radius);
+        int top = Math.min(height - 1, originY + radius);
+        for (int x = Math.max(0, originX - radius); x <= Math.min(world.width() - 1, originX + radius); x++) {
+            for (int y = bottom; y <= top; y++) {
+                int index = x * height + y;
+                visible[index >>> 6] &= ~(1L << index);
+            }
+        }
+    }
+
+    /**
+     * Lights one octant from the given row outward, between the given start and end slopes. Whenever a
+     * run of opaque tiles begins, the part of the next rows that can still be seen past them is lit by a
+     * recursive call, and this scan carries on behind the run.
+     */
+    private void castLight(int row, double start, double end, int xx, int xy, int yx, int yy) {
+        if (start < end) {
+            return;
+        }
+        int radiusSquared = radius * radius;
+        double newStart = 0.0;
+        for (int distance = row; distance <= radius; distance++) {
+            boolean blocked = false;
+            int dy = -distance;
+            for (int dx = -distance; dx <= 0; dx++) {
+                double leftSlope = (dx - 0.5) / (dy + 0.5);
+                double rightSlope = (dx + 0.5) / (dy - 0.5);
+                if (start < rightSlope) {
+                    continue;
+                } else if (end > leftSlope) {
+                    break;
+                }
+                int x = originX + dx * xx + dy * xy;
+                int y = originY + dx * yx + dy * yy;
+                if (dx * dx + dy * dy <= radiusSquared && world.inBounds(x, y)) {
+                    setVisible(x, y);
+                }
+                if (blocked) {
+                    if (isOpaque(x, y)) {
+                        newStart = rightSlope;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else if (isOpaque(x, y) && distance < radius) {
+                    blocked = true;
+                    castLight(distance + 1, start, leftSlope, xx, xy, yx, yy);
+                    newStart = rightSlope;
+                }
+            }
+            if (blocked) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package tileengine;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rasterizes every distinct glyph tile (character, text color and background color) once, so that
+ * drawing a tile is an image copy instead of filling a square and laying out text. Color variants of a
+ * tile get their own glyph the first time they are drawn.
+ *
+ * Glyphs are packed into a single sheet image, TERenderer.TILE_SIZE pixels square each, which renderers
+ * that draw into their own images, such as ImageRenderTarget, copy from directly. StdDraw can only draw
+ * images that are files, so tiles drawn in the StdDraw window do not use the atlas.
+ *
+ * The atlas is safe to use from several threads at once.
+ */
+public final class GlyphAtlas {
+    private static final int SIZE = TERenderer.TILE_SIZE;
+    private static final int COLUMNS = 32;
+    private static final GlyphAtlas SHARED = new GlyphAtlas();
+    private final Map<Long, Integer> slots = new ConcurrentHashMap<>();
+    private final Font font = new Font("Monaco", Font.BOLD, SIZE - 2);
+    private volatile BufferedImage sheet = new BufferedImage(COLUMNS * SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+    private int glyphs = 0;
+
+    /** Returns the atlas shared by all renderers. */
+    public static GlyphAtlas shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the slot of the given tile's glyph in the sheet, rasterizing it if this is the first time.
+     * @param tile the tile to look up
+     */
+    public int slot(TETile tile) {
+        Integer slot = slots.get(key(tile));
+        return slot != null ? slot : rasterize(tile);
+    }
+
+    /**
+     * Returns the sheet holding every glyph rasterized so far. Glyph number i is the square whose top left
+     * corner is at (sheetX(i), sheetY(i)). The sheet is replaced by a larger one when it fills up, so get
+     * it again after rasterizing new glyphs.
+     */
+    public BufferedImage sheet() {
+        return sheet;
+    }
+
+    /**
+     * Returns the left edge of the given glyph in the sheet, in pixels.
+     * @param slot a slot returned by slot
+     */
+    public static int sheetX(int slot) {
+        return (slot % COLUMNS) * SIZE;
+    }
+
+    /**
+     * Returns the top edge of the given glyph in the sheet, in pixels.
+     * @param slot a slot returned by slot
+     */
+    public static int sheetY(int slot) {
+        return (slot / COLUMNS) * SIZE;
+    }
+
+    private static long key(TETile tile) {
+        return ((long) tile.character() << 48)
+                | ((long) (tile.textColor().getRGB() & 0xFFFFFF) << 24)
+                | (tile.backgroundColor().getRGB() & 0xFFFFFF);
+    }
+
+    private synchronized int rasterize(TETile tile) {
+        long key = key(tile);
+        Integer existing = slots.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = glyphs++;
+        if (sheetY(slot) + SIZE > sheet.getHeight()) {
+            BufferedImage larger = new BufferedImage(sheet.getWidth(), sheet.getHeight() * 2,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = larger.createGraphics();
+            g.drawImage(sheet, 0, 0, null);
+            g.dispose();
+            sheet = larger;
+        }
+        Graphics2D g = sheet.createGraphics();
+        g.translate(sheetX(slot), sheetY(slot));
+        drawGlyph(g, tile);
+        g.dispose();
+        slots.put(key, slot);
+        return slot;
+    }
+
+    /** Draws the glyph into the square from (0, 0) to (SIZE, SIZE), laid out the same way StdDraw.text does */
+    private void drawGlyph(Graphics2D g, TETile tile) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(tile.backgroundColor());
+        g.fillRect(0, 0, SIZE, SIZE);
+        g.setColor(tile.textColor());
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        String text = Character.toString(tile.character());
+        g.drawString(text, SIZE / 2.0f - metrics.stringWidth(text) / 2.0f, SIZE / 2.0f + metrics.getDescent());
+    }
+}
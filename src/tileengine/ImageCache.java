@@ -0,0 +1,130 @@
+package tileengine;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the images of file-backed tiles once per path and keeps them decoded, in a format that is fast
+ * to draw on the current screen. Paths that cannot be loaded are remembered as missing, so tiles whose
+ * image is missing go straight to drawing their character instead of failing to load the file every frame.
+ *
+ * An image is looked up in the same places and order as StdDraw.picture: as a file, as a URL, as a
+ * resource relative to StdDraw's class and as a resource from the root of the classpath. It is decoded
+ * with ImageIO, which reads some formats StdDraw cannot, so TETile.draw marks a path missing when StdDraw
+ * fails on it. The cache is safe to use from several threads at once.
+ */
+public final class ImageCache {
+    private static final ImageCache SHARED = new ImageCache();
+    private final Map<String, Optional<BufferedImage>> images = new ConcurrentHashMap<>();
+
+    /** Returns the cache shared by all tiles and renderers. */
+    public static ImageCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the image at the given path, loading it if this is the first time, or null if there is no
+     * readable image there.
+     * @param path path of the image file
+     */
+    public BufferedImage get(String path) {
+        return images.computeIfAbsent(path, ImageCache::load).orElse(null);
+    }
+
+    /**
+     * Checks if there is a readable image at the given path, loading it if this is the first time.
+     * @param path path of the image file
+     */
+    public boolean exists(String path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Remembers the given path as missing, so it is not drawn as an image from now on.
+     * @param path path of the image file
+     */
+    public void markMissing(String path) {
+        images.put(path, Optional.empty());
+    }
+
+    /** Forgets every image and missing path, so they are looked up again the next time they are used. */
+    public void clear() {
+        images.clear();
+    }
+
+    private static Optional<BufferedImage> load(String path) {
+        BufferedImage image = null;
+        File file = new File(path);
+        if (file.isFile()) {
+            image = read(file);
+        }
+        if (image == null) {
+            image = read(toUrl(path));
+        }
+        if (image == null) {
+            image = read(StdDraw.class.getResource(path));
+        }
+        if (image == null) {
+            image = read(StdDraw.class.getResource("/" + path));
+        }
+        return image == null ? Optional.empty() : Optional.of(toCompatible(image));
+    }
+
+    /** Returns the path as a URL, or null if it is not one */
+    private static URL toUrl(String path) {
+        try {
+            return new URI(path).toURL();
+        } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static BufferedImage read(File file) {
+        try {
+            return ImageIO.read(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static BufferedImage read(URL url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return ImageIO.read(url);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Copies the image into the pixel format of the screen, or ARGB when there is no screen. */
+    private static BufferedImage toCompatible(BufferedImage image) {
+        BufferedImage compatible;
+        if (GraphicsEnvironment.isHeadless()) {
+            compatible = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        } else {
+            compatible = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration()
+                    .createCompatibleImage(image.getWidth(), image.getHeight(), Transparency.TRANSLUCENT);
+        }
+        Graphics2D g = compatible.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return compatible;
+    }
+}
@@ -0,0 +1,132 @@
+package tileengine;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Draws tiles into an image in memory instead of a window, so worlds can be turned into pictures without
+ * a display, for example with -Djava.awt.headless=true. Tiles are copied out of the shared GlyphAtlas, or
+ * out of the shared ImageCache for tiles with an image file.
+ *
+ * Each instance can be used from several threads, and different instances can draw at the same time, so
+ * many worlds can be rendered in parallel with one target per thread.
+ */
+public class ImageRenderTarget implements RenderTarget {
+    private static final int SIZE = TERenderer.TILE_SIZE;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int height;
+
+    /**
+     * Creates a black image of the given size.
+     * @param width width in tiles
+     * @param height height in tiles
+     */
+    public ImageRenderTarget(int width, int height) {
+        allocate(width, height);
+    }
+
+    @Override
+    public synchronized void resize(int width, int height) {
+        allocate(width, height);
+    }
+
+    /** Replaces the image with a black one of the given size in tiles */
+    private void allocate(int width, int height) {
+        if (graphics != null) {
+            graphics.dispose();
+        }
+        this.height = height;
+        this.image = new BufferedImage(width * SIZE, height * SIZE, BufferedImage.TYPE_INT_RGB);
+        this.graphics = image.createGraphics();
+    }
+
+    @Override
+    public synchronized void clear(Color color) {
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    @Override
+    public synchronized void drawTile(TETile tile, int x, int y) {
+        int left = x * SIZE;
+        int top = (height - 1 - y) * SIZE;
+        BufferedImage picture = tile.filepath() == null ? null : ImageCache.shared().get(tile.filepath());
+        if (picture != null) {
+            graphics.drawImage(picture, left, top, null);
+            return;
+        }
+        GlyphAtlas atlas = GlyphAtlas.shared();
+        int slot = atlas.slot(tile);
+        int sheetX = GlyphAtlas.sheetX(slot);
+        int sheetY = GlyphAtlas.sheetY(slot);
+        graphics.drawImage(atlas.sheet(), left, top, left + SIZE, top + SIZE,
+                sheetX, sheetY, sheetX + SIZE, sheetY + SIZE, null);
+    }
+
+    @Override
+    public void show() {
+        // the image is always up to date
+    }
+
+    @Override
+    public void resetFont() {
+        // tile characters come from the GlyphAtlas, which always uses the default font
+    }
+
+    /**
+     * Clears the image and draws every tile of the world, starting from the bottom left corner.
+     * @param world the 2D TETile[][] array to draw
+     */
+    public synchronized void render(TETile[][] world) {
+        clear(Color.BLACK);
+        for (int x = 0; x < world.length; x++) {
+            for (int y = 0; y < world[0].length; y++) {
+                drawTile(world[x][y], x, y);
+            }
+        }
+    }
+
+    /**
+     * Clears the image and draws every tile of the world, starting from the bottom left corner.
+     * @param world the TileGrid to draw
+     */
+    public synchronized void render(TileGrid world) {
+        clear(Color.BLACK);
+        for (int x = 0; x < world.width(); x++) {
+            for (int y = 0; y < world.height(); y++) {
+                drawTile(world.get(x, y), x, y);
+            }
+        }
+    }
+
+    /** Returns a copy of the image as drawn so far. */
+    public synchronized BufferedImage toImage() {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * Writes the image as a PNG file.
+     * @param file the file to write
+     */
+    public synchronized void writePng(File file) throws IOException {
+        ImageIO.write(image, "png", file);
+    }
+
+    /**
+     * Writes the image as PNG data to the given stream, leaving the stream open.
+     * @param out the stream to write to
+     */
+    public synchronized void writePng(OutputStream out) throws IOException {
+        ImageIO.write(image, "png", out);
+    }
+}
@@ -0,0 +1,36 @@
+package tileengine;
+
+import java.awt.Color;
+
+/**
+ * Somewhere tiles can be drawn, such as the StdDraw window or an image in memory. Positions are given in
+ * tiles, with (0, 0) at the bottom left, the same as in a TETile[][] world.
+ */
+public interface RenderTarget {
+    /**
+     * Sets the size of the target, which also clears it.
+     * @param width width in tiles
+     * @param height height in tiles
+     */
+    void resize(int width, int height);
+
+    /**
+     * Fills the whole target with the given color.
+     * @param color the color to fill with
+     */
+    void clear(Color color);
+
+    /**
+     * Draws a tile at the given position.
+     * @param tile the tile to draw
+     * @param x x coordinate in tiles
+     * @param y y coordinate in tiles
+     */
+    void drawTile(TETile tile, int x, int y);
+
+    /** Makes everything drawn since the last call visible. */
+    void show();
+
+    /** Sets the font used for tile characters back to the default, in case other drawing changed it. */
+    void resetFont();
+}
@@ -0,0 +1,45 @@
+package tileengine;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.awt.Color;
+import java.awt.Font;
+
+/**
+ * Draws tiles into the StdDraw window, with the scale set so that one unit is one tile. There is only
+ * one StdDraw window, so all instances draw to the same place.
+ */
+public class StdDrawRenderTarget implements RenderTarget {
+    @Override
+    public void resize(int width, int height) {
+        StdDraw.setCanvasSize(width * TERenderer.TILE_SIZE, height * TERenderer.TILE_SIZE);
+        resetFont();
+        StdDraw.setXscale(0, width);
+        StdDraw.setYscale(0, height);
+
+        StdDraw.clear(new Color(0, 0, 0));
+
+        StdDraw.enableDoubleBuffering();
+        StdDraw.show();
+    }
+
+    @Override
+    public void clear(Color color) {
+        StdDraw.clear(color);
+    }
+
+    @Override
+    public void drawTile(TETile tile, int x, int y) {
+        tile.draw(x, y);
+    }
+
+    @Override
+    public void show() {
+        StdDraw.show();
+    }
+
+    @Override
+    public void resetFont() {
+        StdDraw.setFont(new Font("Monaco", Font.BOLD, TERenderer.TILE_SIZE - 2));
+    }
+}
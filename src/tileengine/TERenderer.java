@@ -1,23 +1,48 @@
 package tileengine;
 
-import edu.princeton.cs.algs4.StdDraw;
-
 import java.awt.Color;
-import java.awt.Font;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Utility class for rendering tiles. You do not need to modify this file. You're welcome
  * to, but be careful. We strongly recommend getting everything else working before
  * messing with this renderer, unless you're trying to do something fancy like
  * allowing scrolling of the screen or tracking the avatar or something similar.
+ *
+ * By default tiles are drawn in the StdDraw window, but a renderer can be given any other
+ * RenderTarget, such as an ImageRenderTarget to draw into an image without a display.
  */
 public class TERenderer implements Serializable {
-    private static final int TILE_SIZE = 16;
+    /** Width and height of a tile on the screen, in pixels */
+    public static final int TILE_SIZE = 16;
+    /** How bright explored tiles that cannot be seen are drawn, from 0 for black to 1 for unchanged */
+    private static final double DIMMED_BRIGHTNESS = 0.4;
     private int width;
     private int height;
     private int xOffset;
     private int yOffset;
+    /** The tile drawn at every position by the last frame, indexed x * height + y, or null before any frame */
+    private transient TETile[] lastFrame;
+    private final transient RenderTarget target;
+    private transient int lastWidth;
+    private transient int lastHeight;
+    /** Dimmed copies of the palette tiles of dimmedWorld, made as they are needed */
+    private transient TETile[] dimmedTiles;
+    private transient TileGrid dimmedWorld;
+
+    /** Creates a renderer that draws in the StdDraw window. */
+    public TERenderer() {
+        this(new StdDrawRenderTarget());
+    }
+
+    /**
+     * Creates a renderer that draws to the given target.
+     * @param target where tiles are drawn
+     */
+    public TERenderer(RenderTarget target) {
+        this.target = target;
+    }
 
     /**
      * Same functionality as the other initialization method. The only difference is that the xOff
@@ -33,19 +58,12 @@ public class TERenderer implements Serializable {
         this.height = h;
         this.xOffset = xOff;
         this.yOffset = yOff;
-        StdDraw.setCanvasSize(width * TILE_SIZE, height * TILE_SIZE);
-        resetFont();
-        StdDraw.setXscale(0, width);
-        StdDraw.setYscale(0, height);
-
-        StdDraw.clear(new Color(0, 0, 0));
-
-        StdDraw.enableDoubleBuffering();
-        StdDraw.show();
+        target.resize(width, height);
+        invalidate();
     }
 
     /**
-     * Initializes StdDraw parameters and launches the StdDraw window. w and h are the
+     * Initializes the render target, which for StdDraw launches the window. w and h are the
      * width and height of the world in number of tiles. If the TETile[][] array that you
      * pass to renderFrame is smaller than this, then extra blank space will be left
      * on the right and top edges of the frame. For example, if you select w = 60 and
@@ -84,9 +102,17 @@ public class TERenderer implements Serializable {
      * @param world the 2D TETile[][] array to render
      */
     public void renderFrame(TETile[][] world) {
-        StdDraw.clear(new Color(0, 0, 0));
-        drawTiles(world);
-        StdDraw.show();
+        boolean repaint = startFrame(world.length, world[0].length);
+        for (int x = 0; x < world.length; x += 1) {
+            for (int y = 0; y < world[0].length; y += 1) {
+                if (world[x][y] == null) {
+                    throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
+                            + " is null.");
+                }
+                drawIfChanged(world[x][y], x, y, repaint);
+            }
+        }
+        target.show();
     }
 
     /**
@@ -102,9 +128,153 @@ public class TERenderer implements Serializable {
                     throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
                             + " is null.");
                 }
-                world[x][y].draw(x + xOffset, y + yOffset);
+                target.drawTile(world[x][y], x + xOffset, y + yOffset);
             }
         }
+        invalidate();
+    }
+
+    /**
+     * Same as renderFrame(TETile[][]), but reads the tiles straight out of a TileGrid.
+     * @param world the TileGrid to render
+     */
+    public void renderFrame(TileGrid world) {
+        boolean repaint = startFrame(world.width(), world.height());
+        for (int x = 0; x < world.width(); x += 1) {
+            for (int y = 0; y < world.height(); y += 1) {
+                drawIfChanged(world.get(x, y), x, y, repaint);
+            }
+        }
+        target.show();
+    }
+
+    /**
+     * Draws all tiles of a TileGrid without clearing the canvas or showing the tiles.
+     * @param world the TileGrid to render
+     */
+    public void drawTiles(TileGrid world) {
+        for (int x = 0; x < world.width(); x += 1) {
+            for (int y = 0; y < world.height(); y += 1) {
+                target.drawTile(world.get(x, y), x + xOffset, y + yOffset);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Renders only the part of the world inside the camera, so the cost does not depend on the size of
+     * the world. The camera's bottom left tile is drawn at xOffset and yOffset, and anything in the
+     * camera that lies outside the world is drawn as Tileset.NOTHING.
+     * @param world the TileGrid to render
+     * @param camera the part of the world to render
+     */
+    public void renderFrame(TileGrid world, Camera camera) {
+        renderFrame(world, camera, null);
+    }
+
+    /**
+     * Same as renderFrame(TileGrid, Camera), but tiles the field of view cannot see are drawn as
+     * Tileset.NOTHING. The world itself is not changed or copied.
+     * @param world the TileGrid to render
+     * @param camera the part of the world to render
+     * @param view the tiles that can be seen, or null to draw every tile
+     */
+    public void renderFrame(TileGrid world, Camera camera, FieldOfView view) {
+        renderFrame(world, camera, view, null);
+    }
+
+    /**
+     * Same as renderFrame(TileGrid, Camera, FieldOfView), but tiles that cannot be seen and have been
+     * explored before are drawn dimmed instead of as Tileset.NOTHING. The dimmed tiles are made once per
+     * tile in the world's palette, so drawing them costs no more than drawing the tiles themselves.
+     * @param world the TileGrid to render
+     * @param camera the part of the world to render
+     * @param view the tiles that can be seen, or null to draw every tile
+     * @param explored the tiles that have been seen before, or null to remember nothing
+     */
+    public void renderFrame(TileGrid world, Camera camera, FieldOfView view, ExploredMap explored) {
+        boolean repaint = startFrame(camera.width(), camera.height());
+        for (int x = 0; x < camera.width(); x += 1) {
+            for (int y = 0; y < camera.height(); y += 1) {
+                int worldX = camera.worldX(x);
+                int worldY = camera.worldY(y);
+                TETile tile = Tileset.NOTHING;
+                if (world.inBounds(worldX, worldY)) {
+                    if (view == null || view.isVisible(worldX, worldY)) {
+                        tile = world.get(worldX, worldY);
+                    } else if (explored != null && explored.isExplored(worldX, worldY)) {
+                        tile = dimmed(world, world.paletteIndex(worldX, worldY));
+                    }
+                }
+                drawIfChanged(tile, x, y, repaint);
+            }
+        }
+        target.show();
+    }
+
+    /** Returns the dimmed copy of the given palette tile, making it the first time it is needed */
+    private TETile dimmed(TileGrid world, int index) {
+        if (dimmedWorld != world) {
+            dimmedTiles = new TETile[world.paletteSize()];
+            dimmedWorld = world;
+        } else if (dimmedTiles.length < world.paletteSize()) {
+            dimmedTiles = Arrays.copyOf(dimmedTiles, world.paletteSize());
+        }
+        if (dimmedTiles[index] == null) {
+            dimmedTiles[index] = TETile.darker(world.paletteTile(index), DIMMED_BRIGHTNESS);
+        }
+        return dimmedTiles[index];
+    }
+
+    /**
+     * Same as renderFrame(TileGrid, Camera), but for a 2D TETile[][] array.
+     * @param world the 2D TETile[][] array to render
+     * @param camera the part of the world to render
+     */
+    public void renderFrame(TETile[][] world, Camera camera) {
+        boolean repaint = startFrame(camera.width(), camera.height());
+        for (int x = 0; x < camera.width(); x += 1) {
+            for (int y = 0; y < camera.height(); y += 1) {
+                int worldX = camera.worldX(x);
+                int worldY = camera.worldY(y);
+                boolean inWorld = worldX >= 0 && worldX < world.length && worldY >= 0 && worldY < world[0].length;
+                drawIfChanged(inWorld ? world[worldX][worldY] : Tileset.NOTHING, x, y, repaint);
+            }
+        }
+        target.show();
+    }
+
+    /**
+     * Makes the next renderFrame clear the canvas and draw every tile. renderFrame normally only redraws
+     * the tiles that changed since the last frame, relying on everything else still being on the canvas,
+     * so call this after drawing over the tiles with anything other than this renderer.
+     */
+    public void invalidate() {
+        lastFrame = null;
+    }
+
+    /**
+     * Gets ready to draw a frame of the given size, clearing the canvas if every tile must be drawn.
+     * @return whether every tile must be drawn
+     */
+    private boolean startFrame(int w, int h) {
+        if (lastFrame != null && w == lastWidth && h == lastHeight) {
+            return false;
+        }
+        lastFrame = new TETile[w * h];
+        lastWidth = w;
+        lastHeight = h;
+        target.clear(new Color(0, 0, 0));
+        return true;
+    }
+
+    /** Draws the tile unless the last frame already drew the same tile at that position. */
+    private void drawIfChanged(TETile tile, int x, int y, boolean repaint) {
+        int index = x * lastHeight + y;
+        if (repaint || lastFrame[index] != tile) {
+            target.drawTile(tile, x + xOffset, y + yOffset);
+            lastFrame[index] = tile;
+        }
     }
 
     /**
@@ -112,7 +282,19 @@ public class TERenderer implements Serializable {
      * if you changed the pen settings.
      */
     public void resetFont() {
-        Font font = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
-        StdDraw.setFont(font);
+        target.resetFont();
+    }
+
+    /**
+     * The render target is not serialized, so a deserialized renderer draws in the StdDraw window, with the
+     * same size and offsets as the one that was saved.
+     */
+    private Object readResolve() {
+        TERenderer renderer = new TERenderer();
+        renderer.width = width;
+        renderer.height = height;
+        renderer.xOffset = xOffset;
+        renderer.yOffset = yOffset;
+        return renderer;
     }
 }
@@ -87,7 +87,9 @@ public class TETile implements Serializable {
     /**
      * Draws the tile to the screen at location x, y. If a valid filepath is provided,
      * we draw the image located at that filepath to the screen. Otherwise, we fall
-     * back to the character and color representation for the tile.
+     * back to the character and color representation for the tile. Whether the
+     * file exists is checked once per path by the shared ImageCache, and a file
+     * StdDraw fails to draw is remembered there as missing.
      *
      * Note that the image provided must be of the right size (16x16). It will not be
      * automatically resized or truncated.
@@ -95,13 +97,14 @@ public class TETile implements Serializable {
      * @param y y coordinate
      */
     public void draw(double x, double y) {
-        if (filepath != null) {
+        if (filepath != null && ImageCache.shared().exists(filepath)) {
             try {
                 StdDraw.picture(x + 0.5, y + 0.5, filepath);
                 return;
             } catch (IllegalArgumentException e) {
-                // Exception happens because the file can't be found. In this case, fail silently
-                // and just use the character and background color for the tile.
+                // StdDraw could not read an image the cache could, for example a format only ImageIO
+                // decodes. Use the character and background color for the tile from now on.
+                ImageCache.shared().markMissing(filepath);
             }
         }
 
@@ -127,6 +130,21 @@ public class TETile implements Serializable {
         return description;
     }
 
+    /** Path of the tile's image file, or null if it is drawn as a character. */
+    String filepath() {
+        return filepath;
+    }
+
+    /** Color of the tile's character. */
+    Color textColor() {
+        return textColor;
+    }
+
+    /** Color drawn behind the tile's character. */
+    Color backgroundColor() {
+        return backgroundColor;
+    }
+
     /**
      * ID number of the tile. Used for equality comparisons.
      * @return id of the tile
@@ -156,6 +174,23 @@ public class TETile implements Serializable {
         return new TETile(t, c);
     }
 
+    /**
+     * Creates a copy of the given tile with its colors scaled towards black, for drawing tiles that are
+     * remembered but not currently seen. The copy is always drawn as a character, even if the tile has an
+     * image file, and keeps the tile's ID.
+     * @param t the tile to copy
+     * @param brightness how bright the copy is, from 0 for black to 1 for unchanged
+     */
+    public static TETile darker(TETile t, double brightness) {
+        return new TETile(t.character, scale(t.textColor, brightness), scale(t.backgroundColor, brightness),
+                t.description, t.id);
+    }
+
+    private static Color scale(Color c, double brightness) {
+        return new Color((int) (c.getRed() * brightness), (int) (c.getGreen() * brightness),
+                (int) (c.getBlue() * brightness));
+    }
+
     private static int newColorValue(int v, int dv, Random r) {
         int rawNewValue = v + RandomUtils.uniform(r, -dv, dv + 1);
 
@@ -223,4 +258,13 @@ public class TETile implements Serializable {
         }
         return (o instanceof TETile otherTile && otherTile.id == this.id);
     }
+
+    /**
+     * Hashes a tile by its ID, so that tiles that are equal also hash the same.
+     * @return hash code of the tile
+     */
+    @Override
+    public int hashCode() {
+        return id;
+    }
 }
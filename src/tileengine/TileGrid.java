@@ -0,0 +1,302 @@
+package tileengine;
+
+import utils.VarInts;
+
+import java.awt.Color;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A 2D grid of tiles stored compactly. Instead of holding a TETile reference per position, every
+ * position holds a one-byte index into a small per-grid palette of the distinct tiles in use, and all
+ * positions live in one flat array, column by column (x * height + y). This makes a grid about 8 times
+ * smaller than a TETile[][] of the same size, and copying or scanning the whole grid is a single pass
+ * over one array.
+ *
+ * Tiles are added to the palette the first time they are placed, and are matched by reference so that
+ * color variants of the same tile keep their own colors. A grid can hold up to 256 distinct tiles.
+ *
+ * Java arrays cannot be views, so code that still needs a TETile[][] can get one from toArray. That is
+ * a copy, and later changes to either one are not reflected in the other.
+ */
+public class TileGrid implements Serializable {
+    private static final int MAX_PALETTE_SIZE = 256;
+    /** The longest run writeTo writes, so that a run and its palette index always fit in one int */
+    private static final int MAX_RUN = 1 << 23;
+    private final int width;
+    private final int height;
+    private final byte[] cells;
+    private final ArrayList<TETile> palette;
+
+    /**
+     * Creates a grid where every position holds the given tile.
+     * @param width width of the grid in tiles
+     * @param height height of the grid in tiles
+     * @param fill the tile placed at every position
+     */
+    public TileGrid(int width, int height, TETile fill) {
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+        this.palette = new ArrayList<>();
+        palette.add(fill);
+    }
+
+    private TileGrid(TileGrid other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.cells = other.cells.clone();
+        this.palette = new ArrayList<>(other.palette);
+    }
+
+    /**
+     * Creates a grid holding the same tiles as the given 2D array.
+     * @param tiles the 2D array to copy
+     */
+    public static TileGrid fromArray(TETile[][] tiles) {
+        TileGrid grid = new TileGrid(tiles.length, tiles[0].length, tiles[0][0]);
+        for (int x = 0; x < grid.width; x++) {
+            for (int y = 0; y < grid.height; y++) {
+                grid.set(x, y, tiles[x][y]);
+            }
+        }
+        return grid;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Checks if the given position lies within the grid.
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Returns the tile at the given position.
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public TETile get(int x, int y) {
+        return palette.get(cells[x * height + y] & 0xFF);
+    }
+
+    /**
+     * Places the tile at the given position, adding it to the palette if it is not there yet.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param tile the tile to place
+     */
+    public void set(int x, int y, TETile tile) {
+        cells[x * height + y] = (byte) paletteIndexOf(tile);
+    }
+
+    /**
+     * Returns the palette index of the tile at the given position.
+     * @param x x coordinate
+     * @param y y coordinate
+     */
+    public int paletteIndex(int x, int y) {
+        return cells[x * height + y] & 0xFF;
+    }
+
+    /**
+     * Places the palette tile with the given index at the given position.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param index index of a tile already in the palette
+     */
+    public void setPaletteIndex(int x, int y, int index) {
+        if (index < 0 || index >= palette.size()) {
+            throw new IllegalArgumentException("Palette index " + index + " is not in the palette.");
+        }
+        cells[x * height + y] = (byte) index;
+    }
+
+    /**
+     * Returns the palette index of the given tile, adding it to the palette if it is not there yet.
+     * @param tile the tile to look up
+     */
+    public int paletteIndexOf(TETile tile) {
+        if (tile == null) {
+            throw new IllegalArgumentException("Cannot place a null tile in a TileGrid.");
+        }
+        for (int i = 0; i < palette.size(); i++) {
+            if (palette.get(i) == tile) {
+                return i;
+            }
+        }
+        if (palette.size() == MAX_PALETTE_SIZE) {
+            throw new IllegalStateException("A TileGrid cannot hold more than " + MAX_PALETTE_SIZE
+                    + " distinct tiles.");
+        }
+        palette.add(tile);
+        return palette.size() - 1;
+    }
+
+    /**
+     * Returns the tile with the given palette index.
+     * @param index index of a tile in the palette
+     */
+    public TETile paletteTile(int index) {
+        return palette.get(index);
+    }
+
+    /** Returns the number of distinct tiles in the palette. */
+    public int paletteSize() {
+        return palette.size();
+    }
+
+    /**
+     * Copies every tile of the given grid into this grid, with the source's bottom left corner placed at
+     * (x0, y0). The source must fit inside this grid.
+     * @param source the grid to copy from
+     * @param x0 x coordinate in this grid of the source's left column
+     * @param y0 y coordinate in this grid of the source's bottom row
+     */
+    public void paste(TileGrid source, int x0, int y0) {
+        if (!inBounds(x0, y0) || !inBounds(x0 + source.width - 1, y0 + source.height - 1)) {
+            throw new IllegalArgumentException("A " + source.width + "x" + source.height + " grid does not fit at ("
+                    + x0 + ", " + y0 + ") in a " + width + "x" + height + " grid.");
+        }
+        byte[] mapping = new byte[source.palette.size()];
+        boolean identity = true;
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i] = (byte) paletteIndexOf(source.palette.get(i));
+            identity &= mapping[i] == (byte) i;
+        }
+        for (int x = 0; x < source.width; x++) {
+            int from = x * source.height;
+            int to = (x0 + x) * height + y0;
+            if (identity) {
+                System.arraycopy(source.cells, from, cells, to, source.height);
+            } else {
+                for (int y = 0; y < source.height; y++) {
+                    cells[to + y] = mapping[source.cells[from + y] & 0xFF];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the most bytes writeTo can take for this grid: 12 per palette tile, and at worst a run of
+     * length one for every position.
+     */
+    public int maxEncodedSize() {
+        return VarInts.MAX_BYTES * (1 + cells.length) + 12 * palette.size();
+    }
+
+    /**
+     * Writes the palette and the tiles at the buffer's position. Each palette tile is written as its ID,
+     * character and colors, so color variants keep their colors. The positions are written in order as
+     * runs of the same tile, each one a single VarInts value holding the run's length above just enough
+     * low bits for its palette index, so short runs in a small palette take one byte. Use maxEncodedSize
+     * to size the buffer.
+     * @param out the buffer to write to
+     * @throws IllegalArgumentException if a palette tile's ID does not fit in a short
+     */
+    public void writeTo(ByteBuffer out) {
+        for (TETile tile : palette) {
+            if (tile.id() < Short.MIN_VALUE || tile.id() > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Tile ID " + tile.id() + " does not fit in a saved game.");
+            }
+        }
+        VarInts.put(out, palette.size());
+        for (TETile tile : palette) {
+            out.putShort((short) tile.id());
+            out.putChar(tile.character());
+            out.putInt(tile.textColor().getRGB());
+            out.putInt(tile.backgroundColor().getRGB());
+        }
+        int indexBits = indexBits(palette.size());
+        int i = 0;
+        while (i < cells.length) {
+            int run = 1;
+            while (i + run < cells.length && cells[i + run] == cells[i] && run < MAX_RUN) {
+                run++;
+            }
+            VarInts.put(out, (run - 1) << indexBits | (cells[i] & 0xFF));
+            i += run;
+        }
+    }
+
+    /** Returns how many low bits of a run hold its palette index */
+    private static int indexBits(int paletteSize) {
+        return 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    /**
+     * Reads a grid of the given size written by writeTo from the buffer's position. Palette tiles are
+     * looked up by ID in TileProperties, and the Tileset tile itself is used if its character and colors
+     * match what was written.
+     * @param in the buffer to read from
+     * @param width width of the grid in tiles
+     * @param height height of the grid in tiles
+     * @throws IllegalArgumentException if the data does not describe a grid of that size
+     */
+    public static TileGrid readFrom(ByteBuffer in, int width, int height) {
+        int paletteSize = VarInts.get(in);
+        if (paletteSize < 1 || paletteSize > MAX_PALETTE_SIZE) {
+            throw new IllegalArgumentException("Palette size " + paletteSize + " is out of range.");
+        }
+        List<TETile> palette = new ArrayList<>(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            palette.add(readTile(in.getShort(), in.getChar(), new Color(in.getInt()), new Color(in.getInt())));
+        }
+        TileGrid grid = new TileGrid(width, height, palette.get(0));
+        grid.palette.addAll(palette.subList(1, paletteSize));
+        int indexBits = indexBits(paletteSize);
+        int i = 0;
+        while (i < grid.cells.length) {
+            int packed = VarInts.get(in);
+            int index = packed & ((1 << indexBits) - 1);
+            int run = (packed >>> indexBits) + 1;
+            if (index >= paletteSize || run > grid.cells.length - i) {
+                throw new IllegalArgumentException("Bad run of " + run + " tiles at position " + i + ".");
+            }
+            Arrays.fill(grid.cells, i, i + run, (byte) index);
+            i += run;
+        }
+        return grid;
+    }
+
+    private static TETile readTile(int id, char character, Color textColor, Color backgroundColor) {
+        TETile registered = TileProperties.tile(id);
+        if (registered == null) {
+            return new TETile(character, textColor, backgroundColor, "unknown", id);
+        }
+        if (registered.character() == character && registered.textColor().equals(textColor)
+                && registered.backgroundColor().equals(backgroundColor)) {
+            return registered;
+        }
+        return new TETile(character, textColor, backgroundColor, registered.description(),
+                registered.filepath(), id);
+    }
+
+    /** Makes a copy of this grid. */
+    public TileGrid copy() {
+        return new TileGrid(this);
+    }
+
+    /** Copies this grid into a new 2D TETile[][] array, indexed as [x][y]. */
+    public TETile[][] toArray() {
+        TETile[][] tiles = new TETile[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                tiles[x][y] = palette.get(cells[x * height + y] & 0xFF);
+            }
+        }
+        return tiles;
+    }
+}
@@ -0,0 +1,120 @@
+package tileengine;
+
+/**
+ * Looks up what a tile means to the game, such as whether the avatar can walk on it, by the tile's ID.
+ * Every property lives in an array indexed by ID, so checking one is a single array load instead of a
+ * chain of equals calls or string comparisons. Color variants share the ID, and so the properties, of
+ * the tile they were made from.
+ *
+ * Tiles that are not registered here have no flags and are labelled as floor tiles in the HUD. If you
+ * add tiles to Tileset, register them below as well.
+ */
+public final class TileProperties {
+    /** The avatar can stand on the tile */
+    public static final int WALKABLE = 1;
+    /** The tile is floor or ground, including anything resting on the ground */
+    public static final int GROUND = 1 << 1;
+    /** The tile is a wall or other boundary */
+    public static final int BOUNDARY = 1 << 2;
+    /** The tile blocks the avatar's view */
+    public static final int OPAQUE = 1 << 3;
+    private static final String DEFAULT_LABEL = "a floor tile";
+    private static final int[] FLAGS = new int[16];
+    private static final String[] LABELS = new String[16];
+    private static final TETile[] TILES = new TETile[16];
+
+    static {
+        register(Tileset.AVATAR, 0, DEFAULT_LABEL);
+        register(Tileset.WALL, BOUNDARY | OPAQUE, "a wall tile");
+        register(Tileset.FLOOR, WALKABLE | GROUND, DEFAULT_LABEL);
+        register(Tileset.NOTHING, 0, "empty");
+        register(Tileset.GRASS, WALKABLE, DEFAULT_LABEL);
+        register(Tileset.WATER, OPAQUE, "a wall tile");
+        register(Tileset.FLOWER, WALKABLE | GROUND, DEFAULT_LABEL);
+        register(Tileset.LOCKED_DOOR, BOUNDARY | OPAQUE, DEFAULT_LABEL);
+        register(Tileset.UNLOCKED_DOOR, BOUNDARY, DEFAULT_LABEL);
+        register(Tileset.SAND, WALKABLE, DEFAULT_LABEL);
+        register(Tileset.MOUNTAIN, OPAQUE, "a wall tile");
+        register(Tileset.TREE, WALKABLE, DEFAULT_LABEL);
+        register(Tileset.CELL, BOUNDARY | OPAQUE, DEFAULT_LABEL);
+        register(Tileset.HEART, GROUND, DEFAULT_LABEL);
+        register(Tileset.HOUSE, 0, DEFAULT_LABEL);
+        register(Tileset.INDENT, 0, DEFAULT_LABEL);
+    }
+
+    private TileProperties() {
+    }
+
+    private static void register(TETile tile, int flags, String label) {
+        FLAGS[tile.id()] = flags;
+        LABELS[tile.id()] = label;
+        TILES[tile.id()] = tile;
+    }
+
+    /**
+     * Returns all the flags of the given tile, combined with bitwise or.
+     * @param tile the tile to look up
+     */
+    public static int flags(TETile tile) {
+        int id = tile.id();
+        return id >= 0 && id < FLAGS.length ? FLAGS[id] : 0;
+    }
+
+    /**
+     * Checks if the given tile has the given flag.
+     * @param tile the tile to look up
+     * @param flag one of WALKABLE, GROUND, BOUNDARY or OPAQUE
+     */
+    public static boolean has(TETile tile, int flag) {
+        return (flags(tile) & flag) != 0;
+    }
+
+    /**
+     * Checks if the avatar can stand on the given tile.
+     * @param tile the tile to look up
+     */
+    public static boolean isWalkable(TETile tile) {
+        return has(tile, WALKABLE);
+    }
+
+    /**
+     * Checks if the given tile is floor or ground.
+     * @param tile the tile to look up
+     */
+    public static boolean isGround(TETile tile) {
+        return has(tile, GROUND);
+    }
+
+    /**
+     * Checks if the given tile is a wall or other boundary.
+     * @param tile the tile to look up
+     */
+    public static boolean isBoundary(TETile tile) {
+        return has(tile, BOUNDARY);
+    }
+
+    /**
+     * Checks if the given tile blocks the avatar's view.
+     * @param tile the tile to look up
+     */
+    public static boolean isOpaque(TETile tile) {
+        return has(tile, OPAQUE);
+    }
+
+    /**
+     * Returns how the HUD describes the given tile when it is hovered over.
+     * @param tile the tile to look up
+     */
+    public static String hudLabel(TETile tile) {
+        int id = tile.id();
+        return id >= 0 && id < LABELS.length && LABELS[id] != null ? LABELS[id] : DEFAULT_LABEL;
+    }
+
+    /**
+     * Returns the Tileset tile registered with the given ID, or null if there is none.
+     * @param id the ID to look up
+     */
+    public static TETile tile(int id) {
+        return id >= 0 && id < TILES.length ? TILES[id] : null;
+    }
+}
@@ -0,0 +1,166 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A set of non-negative ints, such as packed tile coordinates, stored in a single open-addressing table
+ * with linear probing. Nothing is boxed, so adding and looking up values does not allocate.
+ */
+public class IntHashSet implements Serializable {
+    private static final int EMPTY = -1;
+    private int[] slots;
+    private int size;
+
+    public IntHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates a set that can hold the given number of values before it has to grow.
+     *
+     * @param expectedSize The number of values expected to be added.
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * Creates a set holding the same values as the given set.
+     *
+     * @param other The set to copy.
+     */
+    public IntHashSet(IntHashSet other) {
+        this.slots = other.slots.clone();
+        this.size = other.size;
+    }
+
+    private int home(int value) {
+        return (value * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(slots.length));
+    }
+
+    /**
+     * Adds the value to the set.
+     *
+     * @param value The value to add, which must not be negative.
+     * @return true if the value was not already in the set.
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("IntHashSet cannot hold negative values: " + value);
+        }
+        int mask = slots.length - 1;
+        for (int i = home(value); ; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return false;
+            }
+            if (slots[i] == EMPTY) {
+                slots[i] = value;
+                if (++size * 2 > slots.length) {
+                    grow();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks if the value is in the set.
+     *
+     * @param value The value to look for.
+     * @return true if the value is in the set.
+     */
+    public boolean contains(int value) {
+        int mask = slots.length - 1;
+        for (int i = home(value); slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the value from the set, shifting back any values that probed past it.
+     *
+     * @param value The value to remove.
+     * @return true if the value was in the set.
+     */
+    public boolean remove(int value) {
+        int mask = slots.length - 1;
+        int gap = home(value);
+        while (slots[gap] != value) {
+            if (slots[gap] == EMPTY) {
+                return false;
+            }
+            gap = (gap + 1) & mask;
+        }
+        for (int i = (gap + 1) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            // a value may fill the gap only if the gap lies between its home slot and where it sits now
+            if (((i - home(slots[i])) & mask) >= ((i - gap) & mask)) {
+                slots[gap] = slots[i];
+                gap = i;
+            }
+        }
+        slots[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Adds every value of the given set to this set.
+     *
+     * @param other The set whose values are added.
+     */
+    public void addAll(IntHashSet other) {
+        for (int value : other.slots) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Copies the values of the set into a new array. The order is arbitrary but the same for any two sets
+     * built by the same sequence of operations.
+     *
+     * @return An array holding every value in the set.
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int count = 0;
+        for (int value : slots) {
+            if (value != EMPTY) {
+                values[count++] = value;
+            }
+        }
+        return values;
+    }
+
+    private void grow() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        for (int value : old) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, such as packed tile coordinates, backed by a single int array so that
+ * nothing is boxed.
+ */
+public class IntList implements Serializable {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     * Creates a list that can hold the given number of values before it has to grow.
+     *
+     * @param capacity The number of values expected to be added.
+     */
+    public IntList(int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Adds the value to the end of the list.
+     *
+     * @param value The value to add.
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Returns the value at the given position.
+     *
+     * @param index The position of the value, from 0 to size() - 1.
+     * @return The value at that position.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
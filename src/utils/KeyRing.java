@@ -0,0 +1,78 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size queue of typed keys, each stamped with the time it was typed, for handing keys from exactly
+ * one producer thread to exactly one consumer thread without locking. The producer only ever advances the
+ * tail and the consumer only ever advances the head, and each publishes its slots to the other through an
+ * ordered write, so neither thread waits on the other.
+ */
+public class KeyRing {
+    private final char[] keys;
+    private final long[] times;
+    private final int mask;
+    /** The number of keys taken so far, written only by the consumer */
+    private final AtomicLong head = new AtomicLong();
+    /** The number of keys offered so far, written only by the producer */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a ring that can hold the given number of keys, rounded up to a power of two.
+     *
+     * @param capacity The most keys that can be waiting at once.
+     */
+    public KeyRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.keys = new char[size];
+        this.times = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a key to the end of the ring. Only the producer thread may call this.
+     *
+     * @param key The key typed.
+     * @param nanos When it was typed, from System.nanoTime().
+     * @return Whether the key was added; false if the ring is full and the key was dropped.
+     */
+    public boolean offer(char key, long nanos) {
+        long t = tail.get();
+        if (t - head.get() == keys.length) {
+            return false;
+        }
+        int slot = (int) t & mask;
+        keys[slot] = key;
+        times[slot] = nanos;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes as many waiting keys as fit in the given arrays, oldest first. Only the consumer thread may
+     * call this.
+     *
+     * @param keyOut Receives the keys.
+     * @param timeOut Receives when each key was typed; must be at least as long as keyOut.
+     * @return The number of keys removed.
+     */
+    public int drainTo(char[] keyOut, long[] timeOut) {
+        long h = head.get();
+        int count = (int) Math.min(tail.get() - h, keyOut.length);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (h + i) & mask;
+            keyOut[i] = keys[slot];
+            timeOut[i] = times[slot];
+        }
+        head.lazySet(h + count);
+        return count;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
@@ -0,0 +1,57 @@
+package utils;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes non-negative ints in as few bytes as they need: seven bits per byte, lowest bits
+ * first, with the top bit of each byte set when more bytes follow. Values below 128 take one byte.
+ */
+public class VarInts {
+    /** The most bytes a single int can take */
+    public static final int MAX_BYTES = 5;
+
+    private VarInts() {
+    }
+
+    /**
+     * Writes a non-negative int at the buffer's position.
+     *
+     * @param out The buffer to write to.
+     * @param value The value to write.
+     */
+    public static void put(ByteBuffer out, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot write a negative value: " + value);
+        }
+        while (value >= 0x80) {
+            out.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads an int written by put from the buffer's position.
+     *
+     * @param in The buffer to read from.
+     * @return The value read.
+     * @throws BufferUnderflowException if the buffer ends in the middle of the value.
+     * @throws IllegalArgumentException if the bytes do not hold a non-negative int.
+     */
+    public static int get(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_BYTES; shift += 7) {
+            byte b = in.get();
+            // the last byte only has room for the top three bits of a non-negative int
+            if (shift == 7 * (MAX_BYTES - 1) && (b & 0xFF) > 0x07) {
+                throw new IllegalArgumentException("Malformed variable-length int.");
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length int.");
+    }
+}
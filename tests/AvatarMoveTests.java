@@ -0,0 +1,143 @@
+import core.Avatar;
+import core.WorldState;
+import org.junit.jupiter.api.Test;
+import tileengine.TETile;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that moving the avatar many tiles in one call ends the same as moving it one tile at a time. The
+ * one-tile-at-a-time reference below is written out on its own, with the rules the game had before runs
+ * of moves were applied together, so it shares no code with Avatar.move.
+ */
+public class AvatarMoveTests {
+    private static final TETile[] WALKABLE = {Tileset.TREE, Tileset.GRASS, Tileset.SAND, Tileset.FLOWER,
+        Tileset.FLOOR};
+    private static final TETile[] BLOCKING = {Tileset.WALL, Tileset.WATER, Tileset.MOUNTAIN, Tileset.NOTHING,
+        Tileset.LOCKED_DOOR};
+    private static final int[][] DIRECTIONS = {{0, 1}, {-1, 0}, {0, -1}, {1, 0}};
+
+    @Test
+    public void longRunsStopAtWallsAndTheWorldEdge() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 40; trial++) {
+            // an open field with no wall around it, so runs also end at the edge of the world
+            TileGrid grid = new TileGrid(30 + random.nextInt(20), 20 + random.nextInt(20), Tileset.FLOOR);
+            for (int x = 0; x < grid.width(); x++) {
+                for (int y = 0; y < grid.height(); y++) {
+                    int roll = random.nextInt(10);
+                    if (roll == 0) {
+                        grid.set(x, y, BLOCKING[random.nextInt(BLOCKING.length)]);
+                    } else if (roll < 4) {
+                        grid.set(x, y, WALKABLE[random.nextInt(WALKABLE.length)]);
+                    }
+                }
+            }
+            int startX = random.nextInt(grid.width());
+            int startY = random.nextInt(grid.height());
+            grid.set(startX, startY, Tileset.FLOOR);
+            Avatar avatar = new Avatar(startX, startY, Tileset.FLOOR, Tileset.HEART);
+            grid.set(startX, startY, Tileset.HEART);
+            OneStepAtATime reference = new OneStepAtATime(grid.toArray(), startX, startY, Tileset.FLOOR,
+                    Tileset.HEART);
+
+            for (int run = 0; run < 200; run++) {
+                int[] direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+                // mostly runs longer than the world, so that they are cut short
+                int steps = random.nextInt(4) == 0 ? 1 + random.nextInt(3) : 1 + random.nextInt(80);
+                avatar.move(direction[0], direction[1], steps, grid);
+                for (int i = 0; i < steps; i++) {
+                    reference.step(direction[0], direction[1]);
+                }
+                String message = "trial " + trial + " run " + run;
+                assertEquals(reference.x, avatar.getX(), message);
+                assertEquals(reference.y, avatar.getY(), message);
+                assertSame(reference.previous, avatar.getPreviousTile(), message);
+                assertSameTiles(reference.tiles, grid, message);
+            }
+        }
+    }
+
+    @Test
+    public void longRunsOfKeysInGeneratedWorldsMatchOneStepAtATime() {
+        Random random = new Random(23);
+        for (String pack : new String[] {"A Forest", "Beach", "Cotton Candy"}) {
+            for (long seed = 0; seed < 10; seed++) {
+                WorldState game = new WorldState(seed, Tileset.HEART, pack);
+                game.placeAvatar();
+                Avatar avatar = game.getAvatar();
+                OneStepAtATime reference = new OneStepAtATime(game.getGrid().toArray(), avatar.getX(),
+                        avatar.getY(), avatar.getPreviousTile(), avatar.getCharacter());
+
+                StringBuilder keys = new StringBuilder();
+                for (int run = 0; run < 100; run++) {
+                    int direction = random.nextInt(DIRECTIONS.length);
+                    for (int steps = 1 + random.nextInt(70); steps > 0; steps--) {
+                        keys.append("WASD".charAt(direction));
+                        reference.step(DIRECTIONS[direction][0], DIRECTIONS[direction][1]);
+                    }
+                }
+                game.move(keys, 0, keys.length());
+                String message = pack + " seed " + seed;
+                assertEquals(reference.x, avatar.getX(), message);
+                assertEquals(reference.y, avatar.getY(), message);
+                assertSame(reference.previous, avatar.getPreviousTile(), message);
+                assertSameTiles(reference.tiles, game.getGrid(), message);
+            }
+        }
+    }
+
+    /** Moves an avatar around a TETile[][] one tile at a time, the way the game first did */
+    private static class OneStepAtATime {
+        private final TETile[][] tiles;
+        private final TETile character;
+        private TETile previous;
+        private int x;
+        private int y;
+
+        OneStepAtATime(TETile[][] tiles, int x, int y, TETile previous, TETile character) {
+            this.tiles = tiles;
+            this.x = x;
+            this.y = y;
+            this.previous = previous;
+            this.character = character;
+        }
+
+        void step(int dx, int dy) {
+            int newX = x + dx;
+            int newY = y + dy;
+            if (newX < 0 || newX >= tiles.length || newY < 0 || newY >= tiles[0].length
+                    || !isWalkable(tiles[newX][newY])) {
+                return;
+            }
+            tiles[x][y] = previous;
+            previous = tiles[newX][newY];
+            x = newX;
+            y = newY;
+            tiles[x][y] = character;
+        }
+
+        private static boolean isWalkable(TETile tile) {
+            for (TETile walkable : WALKABLE) {
+                if (tile.equals(walkable)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void assertSameTiles(TETile[][] expected, TileGrid actual, String message) {
+        assertEquals(expected.length, actual.width(), message);
+        assertEquals(expected[0].length, actual.height(), message);
+        for (int x = 0; x < actual.width(); x++) {
+            for (int y = 0; y < actual.height(); y++) {
+                assertSame(expected[x][y], actual.get(x, y), message + " at " + x + ", " + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import core.HallwayStartIndex;
+import core.HallwayUnion;
+import core.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Compares the nearest-hallway-start lookup of HallwayStartIndex against the linear scan it replaced,
+ * for worlds from about 60 to 10,000 rooms. Each room gets three starts on a wall, and the world grows
+ * so that the room density matches the default 60x45 map. Run main directly; this is not a unit test, and
+ * HallwayStartIndexTests checks the index's answers.
+ */
+public class HallwayStartIndexBenchmark {
+    private static final int[] ROOM_COUNTS = {60, 250, 1000, 2500, 10000};
+    private static final int TILES_PER_ROOM = 110;
+    private static final int LINEAR_SAMPLE = 500;
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %8s %16s %16s %10s%n", "rooms", "starts", "index ns/query", "linear ns/query",
+                "speedup");
+        for (int rooms : ROOM_COUNTS) {
+            run(rooms, new Random(rooms));
+        }
+    }
+
+    private static void run(int rooms, Random random) {
+        int side = (int) Math.ceil(Math.sqrt((double) rooms * TILES_PER_ROOM));
+        HallwayUnion union = new HallwayUnion(side, side);
+        List<Point> starts = new ArrayList<>();
+        for (int i = 0; i < rooms; i++) {
+            int x = random.nextInt(side - 8);
+            int y = random.nextInt(side - 8);
+            Point first = new Point(x, y + random.nextInt(8));
+            Point second = new Point(x + 8, y + random.nextInt(8));
+            Point third = new Point(x + random.nextInt(8), y + 8);
+            union.union(first, second);
+            union.union(first, third);
+            starts.add(first);
+            starts.add(second);
+            starts.add(third);
+        }
+
+        // warm up both paths before timing them
+        for (int i = 0; i < 3; i++) {
+            queryAll(starts, union, side);
+            linearScan(starts.get(i), starts, union);
+        }
+
+        long indexStart = System.nanoTime();
+        int found = queryAll(starts, union, side);
+        double indexNanos = (double) (System.nanoTime() - indexStart) / starts.size();
+
+        int sample = Math.min(LINEAR_SAMPLE, starts.size());
+        long linearStart = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            found += linearScan(starts.get(i), starts, union) == null ? 0 : 1;
+        }
+        double linearNanos = (double) (System.nanoTime() - linearStart) / sample;
+
+        System.out.printf("%8d %8d %16.0f %16.0f %9.1fx%s%n", rooms, starts.size(), indexNanos, linearNanos,
+                linearNanos / indexNanos, found == 0 ? " (no results)" : "");
+    }
+
+    private static int queryAll(List<Point> starts, HallwayUnion union, int side) {
+        int[] cells = new int[starts.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = union.index(starts.get(i).getX(), starts.get(i).getY());
+        }
+        HallwayStartIndex index = new HallwayStartIndex(cells, side, side);
+        int found = 0;
+        for (int cell : cells) {
+            if (index.nearestUnconnected(cell, union) >= 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /** The lookup BareBonesWorld.leastDistance used before the index existed */
+    private static Point linearScan(Point tile, List<Point> starts, HallwayUnion union) {
+        Map<Double, Point> distance = new TreeMap<>();
+        for (Point other : starts) {
+            if (!union.connected(tile, other)) {
+                double xCoord = Math.pow(Math.abs(tile.getX() - other.getX()), 2);
+                double yCoord = Math.pow(Math.abs(tile.getY() - other.getY()), 2);
+                distance.put(Math.pow(xCoord + yCoord, 0.5), other);
+            }
+        }
+        for (Map.Entry<Double, Point> least : distance.entrySet()) {
+            return least.getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+import core.HallwayStartIndex;
+import core.HallwayUnion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that HallwayStartIndex finds the same starts as scanning every start, including which start wins
+ * a tie in distance. HallwayStartIndexBenchmark times the two against each other.
+ */
+public class HallwayStartIndexTests {
+    /** Width, height and number of starts; some worlds are narrow or hold very few starts */
+    private static final int[][] WORLDS = {{60, 45, 180}, {60, 45, 3}, {200, 3, 40}, {3, 150, 40}, {1, 1, 1},
+        {120, 90, 1}, {120, 90, 2000}, {97, 61, 333}};
+
+    @Test
+    public void tiesGoToTheSmallerXThenTheSmallerY() {
+        int height = 11;
+        HallwayUnion union = new HallwayUnion(11, height);
+        // four starts two tiles from the middle, one on each side
+        int[] starts = {7 * height + 5, 5 * height + 7, 5 * height + 3, 3 * height + 5};
+        HallwayStartIndex index = new HallwayStartIndex(starts, 11, height);
+        int tile = 5 * height + 5;
+
+        int[] expectedOrder = {3 * height + 5, 5 * height + 3, 5 * height + 7, 7 * height + 5};
+        int[] nearest = new int[4];
+        assertEquals(4, index.nearestUnconnected(tile, union, nearest));
+        assertArrayEquals(expectedOrder, nearest);
+        for (int expected : expectedOrder) {
+            assertEquals(expected, index.nearestUnconnected(tile, union));
+            union.union(tile, expected);
+        }
+        assertEquals(-1, index.nearestUnconnected(tile, union));
+    }
+
+    @Test
+    public void randomWorldsMatchALinearScan() {
+        Random random = new Random(2);
+        for (int[] world : WORLDS) {
+            int width = world[0];
+            int height = world[1];
+            for (int trial = 0; trial < 5; trial++) {
+                // distinct, like the starts BareBonesWorld takes from an IntHashSet
+                int[] starts = random.ints(0, width * height).distinct().limit(world[2]).toArray();
+                HallwayUnion union = new HallwayUnion(width, height);
+                // join starts into groups, the way starts on the same room are joined
+                for (int i = 0; i < starts.length / 2; i++) {
+                    union.union(starts[random.nextInt(starts.length)], starts[random.nextInt(starts.length)]);
+                }
+                HallwayStartIndex index = new HallwayStartIndex(starts, width, height);
+
+                // the lookup from a start is the one generation makes; also look up from other tiles
+                List<Integer> tiles = new ArrayList<>();
+                for (int i = 0; i < Math.min(starts.length, 300); i++) {
+                    tiles.add(starts[i]);
+                }
+                for (int i = 0; i < 100; i++) {
+                    tiles.add(random.nextInt(width * height));
+                }
+                for (int tile : tiles) {
+                    String message = width + "x" + height + " trial " + trial + " tile " + tile;
+                    int[] expected = linearScan(tile, starts, union, height, 3);
+                    int[] nearest = new int[3];
+                    int found = index.nearestUnconnected(tile, union, nearest);
+                    assertEquals(expected.length, found, message);
+                    for (int i = 0; i < found; i++) {
+                        assertEquals(expected[i], nearest[i], message + " closest " + i);
+                    }
+                    assertEquals(expected.length == 0 ? -1 : expected[0], index.nearestUnconnected(tile, union),
+                            message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to k starts not connected to the tile, closest first, by looking at every start. Ties go to
+     * the smaller x, then the smaller y.
+     */
+    private static int[] linearScan(int tile, int[] starts, HallwayUnion union, int height, int k) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int start : starts) {
+            if (!union.connected(tile, start)) {
+                candidates.add(start);
+            }
+        }
+        int tileX = tile / height;
+        int tileY = tile % height;
+        // packed cells order by x and then y, so they break ties the same way
+        candidates.sort((a, b) -> {
+            long distanceA = squared(a / height - tileX) + squared(a % height - tileY);
+            long distanceB = squared(b / height - tileX) + squared(b % height - tileY);
+            return distanceA != distanceB ? Long.compare(distanceA, distanceB) : Integer.compare(a, b);
+        });
+        int[] nearest = new int[Math.min(k, candidates.size())];
+        for (int i = 0; i < nearest.length; i++) {
+            nearest[i] = candidates.get(i);
+        }
+        return nearest;
+    }
+
+    private static long squared(long value) {
+        return value * value;
+    }
+}
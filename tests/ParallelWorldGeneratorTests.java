@@ -0,0 +1,114 @@
+import core.HallwayStrategy;
+import core.ParallelWorldGenerator;
+import core.ResourcePack;
+import org.junit.jupiter.api.Test;
+import tileengine.TETile;
+import tileengine.TileGrid;
+import tileengine.TileProperties;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that region-by-region generation gives the same connected world on any number of threads */
+public class ParallelWorldGeneratorTests {
+    /** Not a multiple of the region size, so the last region of each row and column is larger */
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+    private static final String[] PACKS = {"A Forest", "Beach", "Cotton Candy"};
+    private static final long SEEDS = 4;
+
+    @Test
+    public void oneThreadAndFourThreadsGiveTheSameWorld() {
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            for (String pack : PACKS) {
+                ArrayList<TETile> resource = new ResourcePack(pack).chooseResourcePack();
+                for (long seed = 1; seed <= SEEDS; seed++) {
+                    for (HallwayStrategy strategy : HallwayStrategy.values()) {
+                        String message = pack + " seed " + seed + " " + strategy;
+                        TileGrid single = generator(seed, resource, strategy).generate(one);
+                        TileGrid parallel = generator(seed, resource, strategy).generate(four);
+                        assertSameTiles(single, parallel, message);
+                    }
+                }
+            }
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    @Test
+    public void everyWalkableTileIsConnected() {
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            for (String pack : PACKS) {
+                ArrayList<TETile> resource = new ResourcePack(pack).chooseResourcePack();
+                for (long seed = 1; seed <= SEEDS; seed++) {
+                    for (HallwayStrategy strategy : HallwayStrategy.values()) {
+                        TileGrid world = generator(seed, resource, strategy).generate(four);
+                        assertConnected(world, pack + " seed " + seed + " " + strategy);
+                    }
+                }
+            }
+        } finally {
+            four.shutdown();
+        }
+    }
+
+    private static ParallelWorldGenerator generator(long seed, ArrayList<TETile> resource,
+                                                    HallwayStrategy strategy) {
+        return new ParallelWorldGenerator(seed, WIDTH, HEIGHT, resource, ParallelWorldGenerator.DEFAULT_REGION_SIZE,
+                strategy, 0.1);
+    }
+
+    /** Walks from one walkable tile to every walkable tile it can reach and checks that none are left over */
+    private static void assertConnected(TileGrid world, String message) {
+        int width = world.width();
+        int height = world.height();
+        int walkable = 0;
+        int start = -1;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (TileProperties.isWalkable(world.get(x, y))) {
+                    walkable++;
+                    start = x * height + y;
+                }
+            }
+        }
+        assertTrue(walkable > 0, message + " has no walkable tiles");
+
+        boolean[] reached = new boolean[width * height];
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        reached[start] = true;
+        int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int[] step : steps) {
+                int x = cell / height + step[0];
+                int y = cell % height + step[1];
+                if (world.inBounds(x, y) && !reached[x * height + y] && TileProperties.isWalkable(world.get(x, y))) {
+                    reached[x * height + y] = true;
+                    queue[tail++] = x * height + y;
+                }
+            }
+        }
+        assertEquals(walkable, tail, message + ": walkable tiles reachable from one of them");
+    }
+
+    private static void assertSameTiles(TileGrid expected, TileGrid actual, String message) {
+        assertEquals(expected.width(), actual.width(), message);
+        assertEquals(expected.height(), actual.height(), message);
+        for (int x = 0; x < expected.width(); x++) {
+            for (int y = 0; y < expected.height(); y++) {
+                assertSame(expected.get(x, y), actual.get(x, y), message + " at " + x + ", " + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import core.ReplayCache;
+import core.WorldState;
+import org.junit.jupiter.api.Test;
+import tileengine.TETile;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that a replay through ReplayCache ends the same as replaying every key on a fresh game */
+public class ReplayCacheTests {
+    private static final TETile AVATAR = Tileset.HEART;
+    private static final String RESOURCE = "Cotton Candy";
+    private static final long[] SEEDS = {123, 4242};
+    /** Room for only a few snapshots, so the cache is evicting throughout */
+    private static final long TINY_BUDGET = 16_000;
+
+    @Test
+    public void cachedReplayMatchesFreshReplayUnderATinyBudget() {
+        ReplayCache cache = new ReplayCache(TINY_BUDGET);
+        Random random = new Random(61);
+        String[] prefixes = new String[6];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = randomMoves(random, random.nextInt(6 * ReplayCache.FIRST_SNAPSHOT));
+        }
+        for (int i = 0; i < 600; i++) {
+            long seed = SEEDS[random.nextInt(SEEDS.length)];
+            String moves = prefixes[random.nextInt(prefixes.length)] + randomMoves(random, random.nextInt(40));
+            WorldState cached = cache.replay(seed, AVATAR, RESOURCE, moves);
+            assertSameGame(freshReplay(seed, moves), cached, "seed " + seed + " moves " + moves);
+        }
+        assertTrue(cache.largestSizeInBytes() <= TINY_BUDGET, "cache held " + cache.largestSizeInBytes() + " bytes");
+        assertTrue(cache.hits() > 0, "no replay started from a snapshot");
+    }
+
+    @Test
+    public void longInputsStayWithinTheBudgetWhileReplaying() {
+        Random random = new Random(29);
+        String moves = randomRuns(random, 200_000);
+        String longer = moves + randomRuns(random, 50);
+        WorldState expected = freshReplay(SEEDS[1], moves);
+        WorldState expectedLonger = freshReplay(SEEDS[1], longer);
+        // the first budget has room for a few snapshots but not for the trie of the whole input, the second
+        // for just one snapshot, and the third for none
+        for (long budget : new long[] {64_000, 8_000, 1_000}) {
+            ReplayCache cache = new ReplayCache(budget);
+            assertSameGame(expected, cache.replay(SEEDS[1], AVATAR, RESOURCE, moves), "budget " + budget);
+            assertSameGame(expectedLonger, cache.replay(SEEDS[1], AVATAR, RESOURCE, longer), "budget " + budget);
+            assertTrue(cache.largestSizeInBytes() <= budget,
+                    "cache held " + cache.largestSizeInBytes() + " bytes with a budget of " + budget);
+            assertEquals(budget > expected.sizeInBytes() ? 1 : 0, cache.hits(), "budget " + budget);
+        }
+    }
+
+    @Test
+    public void playingOnAReplayDoesNotChangeTheCache() {
+        ReplayCache cache = new ReplayCache(TINY_BUDGET);
+        String moves = "DDDDWWWWAAAASSSSDDDDWWWW";
+        WorldState first = cache.replay(SEEDS[0], AVATAR, RESOURCE, moves);
+        for (char key : "SSSSSSSSAAAAAAAA".toCharArray()) {
+            first.move(key);
+        }
+        first.toggleLineOfSight();
+        WorldState second = cache.replay(SEEDS[0], AVATAR, RESOURCE, moves);
+        assertSameGame(freshReplay(SEEDS[0], moves), second, "second replay");
+        assertEquals(1, cache.hits());
+    }
+
+    private static WorldState freshReplay(long seed, String moves) {
+        WorldState game = new WorldState(seed, AVATAR, RESOURCE);
+        for (int i = 0; i < moves.length(); i++) {
+            game.move(moves.charAt(i));
+        }
+        return game;
+    }
+
+    /** Returns moves made of runs of up to 20 of the same key, long enough to run into walls */
+    private static String randomRuns(Random random, int length) {
+        StringBuilder moves = new StringBuilder();
+        while (moves.length() < length) {
+            char key = "WASD".charAt(random.nextInt(4));
+            for (int run = 1 + random.nextInt(20); run > 0; run--) {
+                moves.append(key);
+            }
+        }
+        return moves.toString();
+    }
+
+    private static String randomMoves(Random random, int length) {
+        StringBuilder moves = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            moves.append("WASD".charAt(random.nextInt(4)));
+        }
+        return moves.toString();
+    }
+
+    private static void assertSameGame(WorldState expected, WorldState actual, String message) {
+        assertEquals(expected.getAvatar().getX(), actual.getAvatar().getX(), message);
+        assertEquals(expected.getAvatar().getY(), actual.getAvatar().getY(), message);
+        assertEquals(expected.isLineOfSight(), actual.isLineOfSight(), message);
+        TileGrid expectedGrid = expected.getGrid();
+        TileGrid actualGrid = actual.getGrid();
+        for (int x = 0; x < expectedGrid.width(); x++) {
+            for (int y = 0; y < expectedGrid.height(); y++) {
+                assertSame(expectedGrid.get(x, y), actualGrid.get(x, y), message + " at " + x + ", " + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+import core.WorldState;
+import org.junit.jupiter.api.Test;
+import tileengine.ExploredMap;
+import tileengine.FieldOfView;
+import tileengine.TETile;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+import utils.VarInts;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Round trips and damaged input for the binary save format written by WorldState.saveWorld */
+public class SaveFormatTests {
+    private static final String[] PACKS = {"A Forest", "Beach", "Cotton Candy"};
+    private static final int SEEDS_PER_PACK = 20;
+
+    @Test
+    public void varIntsRoundTripAcrossByteBoundaries() {
+        int[] values = {0, 1, 127, 128, 16383, 16384, (1 << 21) - 1, 1 << 21, (1 << 28) - 1, 1 << 28,
+            Integer.MAX_VALUE};
+        int[] sizes = {1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5};
+        for (int i = 0; i < values.length; i++) {
+            ByteBuffer buffer = ByteBuffer.allocate(VarInts.MAX_BYTES);
+            VarInts.put(buffer, values[i]);
+            assertEquals(sizes[i], buffer.position(), "bytes written for " + values[i]);
+            buffer.flip();
+            assertEquals(values[i], VarInts.get(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+        assertThrows(IllegalArgumentException.class, () -> VarInts.put(ByteBuffer.allocate(8), -1));
+    }
+
+    @Test
+    public void varIntsRejectTruncatedAndOverlongInput() {
+        assertThrows(BufferUnderflowException.class, () -> VarInts.get(ByteBuffer.wrap(new byte[] {(byte) 0x80})));
+        byte[] overlong = new byte[VarInts.MAX_BYTES + 1];
+        Arrays.fill(overlong, (byte) 0xFF);
+        assertThrows(IllegalArgumentException.class, () -> VarInts.get(ByteBuffer.wrap(overlong)));
+        // five bytes that would overflow into the sign bit
+        byte[] negative = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        assertThrows(IllegalArgumentException.class, () -> VarInts.get(ByteBuffer.wrap(negative)));
+        // five bytes whose last one has bits past the top of an int, which would otherwise be dropped
+        for (byte last : new byte[] {0x08, 0x10, 0x70}) {
+            byte[] tooWide = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, last};
+            assertThrows(IllegalArgumentException.class, () -> VarInts.get(ByteBuffer.wrap(tooWide)), "last " + last);
+        }
+    }
+
+    @Test
+    public void tileGridRoundTripsEveryPack() {
+        for (String pack : PACKS) {
+            for (long seed = 0; seed < SEEDS_PER_PACK; seed++) {
+                TileGrid grid = new WorldState(seed, Tileset.HEART, pack).getGrid();
+                TileGrid read = roundTrip(grid);
+                assertSameTiles(grid, read, pack + " seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    public void tileGridKeepsColorVariantsAndAFullPalette() {
+        TileGrid grid = new TileGrid(40, 30, Tileset.NOTHING);
+        Random random = new Random(7);
+        List<TETile> variants = new ArrayList<>();
+        // NOTHING is already in the palette, so this fills all 256 entries and needs every index bit
+        for (int i = 0; i < 255; i++) {
+            variants.add(new TETile(Tileset.FLOOR, new Color(i, 255 - i, i / 2)));
+        }
+        for (int x = 0; x < grid.width(); x++) {
+            for (int y = 0; y < grid.height(); y++) {
+                grid.set(x, y, variants.get(random.nextInt(variants.size())));
+            }
+        }
+        for (TETile variant : variants) {
+            grid.paletteIndexOf(variant);
+        }
+        assertEquals(256, grid.paletteSize());
+        TileGrid read = roundTrip(grid);
+        assertEquals(256, read.paletteSize());
+        for (int x = 0; x < grid.width(); x++) {
+            for (int y = 0; y < grid.height(); y++) {
+                TETile expected = grid.get(x, y);
+                TETile actual = read.get(x, y);
+                assertEquals(expected.id(), actual.id());
+                assertEquals(expected.character(), actual.character());
+                assertEquals(expected.description(), actual.description());
+            }
+        }
+        // the variants are not Tileset tiles, so they are read back as new tiles; their colors survive if
+        // writing them again gives exactly the same bytes
+        assertEquals(encode(grid), encode(read));
+    }
+
+    @Test
+    public void tileGridSplitsRunsLongerThanTheLongestEncodableRun() {
+        // 9,000,000 positions of one tile is more than the 2^23 positions a single run can hold, and with a
+        // full palette a longer run would not fit in an int next to its 8 bits of palette index
+        TileGrid grid = new TileGrid(3000, 3000, Tileset.WALL);
+        grid.set(2999, 2999, Tileset.FLOOR);
+        for (int i = grid.paletteSize(); i < 256; i++) {
+            grid.paletteIndexOf(new TETile(Tileset.SAND, new Color(i, i, 0)));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        grid.writeTo(buffer);
+        buffer.flip();
+        TileGrid read = TileGrid.readFrom(buffer, 3000, 3000);
+        assertFalse(buffer.hasRemaining());
+        assertSame(Tileset.WALL, read.get(0, 0));
+        assertSame(Tileset.WALL, read.get(2999, 2998));
+        assertSame(Tileset.WALL, read.get(1398, 1101));
+        assertSame(Tileset.FLOOR, read.get(2999, 2999));
+    }
+
+    @Test
+    public void exploredMapRoundTripsRunsAcrossWordEdges() {
+        Random random = new Random(11);
+        int[][] sizes = {{1, 1}, {8, 8}, {1, 64}, {2, 64}, {7, 19}, {13, 13}, {60, 45}, {100, 97}};
+        for (int[] size : sizes) {
+            int cells = size[0] * size[1];
+            for (int trial = 0; trial < 50; trial++) {
+                // runs of 1 and of lengths around 64 make them start and end on and beside word edges
+                List<Integer> runs = new ArrayList<>();
+                boolean[] expected = new boolean[cells];
+                int start = 0;
+                boolean explored = false;
+                while (start < cells) {
+                    int run = random.nextBoolean() ? 1 + random.nextInt(3) : 62 + random.nextInt(5);
+                    if (start == 0 && !explored && random.nextInt(4) == 0) {
+                        run = 0;
+                    }
+                    run = Math.min(run, cells - start);
+                    Arrays.fill(expected, start, start + run, explored);
+                    runs.add(run);
+                    start += run;
+                    explored = !explored;
+                }
+                ByteBuffer written = ByteBuffer.allocate(VarInts.MAX_BYTES * (runs.size() + 1));
+                for (int run : runs) {
+                    VarInts.put(written, run);
+                }
+                written.flip();
+                ExploredMap map = ExploredMap.readFrom(written.duplicate(), size[0], size[1]);
+                for (int i = 0; i < cells; i++) {
+                    assertEquals(expected[i], map.isExplored(i / size[1], i % size[1]), "position " + i);
+                }
+                ByteBuffer rewritten = ByteBuffer.allocate(map.maxEncodedSize());
+                map.writeTo(rewritten);
+                rewritten.flip();
+                assertEquals(written, rewritten, size[0] + "x" + size[1] + " trial " + trial);
+            }
+        }
+    }
+
+    @Test
+    public void savedGameLoadsBackAndPlaysOnTheSame() throws IOException {
+        Path file = Files.createTempFile("byow", ".bin");
+        try {
+            Random random = new Random(3);
+            for (String pack : PACKS) {
+                for (long seed = 0; seed < SEEDS_PER_PACK; seed++) {
+                    WorldState game = playedGame(seed, pack, random);
+                    game.saveWorld(file);
+                    WorldState loaded = WorldState.loadWorld(file);
+                    assertNotNull(loaded, pack + " seed " + seed);
+                    assertSameGame(game, loaded, pack + " seed " + seed);
+
+                    String moreMoves = randomMoves(random, 30);
+                    game.move(moreMoves, 0, moreMoves.length());
+                    loaded.move(moreMoves, 0, moreMoves.length());
+                    assertSameGame(game, loaded, pack + " seed " + seed + " after more moves");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void savingLeavesTheGameAsItIs() throws IOException {
+        Path file = Files.createTempFile("byow", ".bin");
+        try {
+            // the avatar has not been drawn onto the world yet, so its tile is not in the palette
+            WorldState game = new WorldState(8, Tileset.HEART, "Beach");
+            int paletteSize = game.getGrid().paletteSize();
+            game.saveWorld(file);
+            assertEquals(paletteSize, game.getGrid().paletteSize());
+            WorldState loaded = WorldState.loadWorld(file);
+            assertNotNull(loaded);
+            assertSame(Tileset.HEART, loaded.getAvatar().getCharacter());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void gamesThatDoNotFitTheFormatAreNotSaved() throws IOException {
+        Path file = Files.createTempFile("byow", ".bin");
+        try {
+            playedGame(42, "Cotton Candy", new Random(5)).saveWorld(file);
+            byte[] saved = Files.readAllBytes(file);
+
+            // a full palette leaves no room for the avatar's tile
+            WorldState full = new WorldState(9, Tileset.HEART, "Cotton Candy");
+            for (int i = full.getGrid().paletteSize(); i < 256; i++) {
+                full.getGrid().paletteIndexOf(new TETile(Tileset.SAND, new Color(i, 0, i)));
+            }
+            full.saveWorld(file);
+            assertArrayEquals(saved, Files.readAllBytes(file), "a full palette replaced the saved game");
+
+            WorldState wideId = new WorldState(9, Tileset.HEART, "Cotton Candy");
+            wideId.getGrid().set(0, 0, new TETile('x', Color.white, Color.black, "wide", Short.MAX_VALUE + 1));
+            wideId.saveWorld(file);
+            assertArrayEquals(saved, Files.readAllBytes(file), "a tile ID too wide for a short was saved");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        TileGrid grid = new TileGrid(2, 2, new TETile('x', Color.white, Color.black, "wide", Short.MIN_VALUE - 1));
+        assertThrows(IllegalArgumentException.class, () -> grid.writeTo(ByteBuffer.allocate(grid.maxEncodedSize())));
+    }
+
+    @Test
+    public void damagedSaveFilesAreRejected() throws IOException {
+        Path file = Files.createTempFile("byow", ".bin");
+        try {
+            playedGame(42, "Cotton Candy", new Random(5)).saveWorld(file);
+            byte[] valid = Files.readAllBytes(file);
+
+            // every truncation, including an empty file
+            for (int length = 0; length < valid.length; length++) {
+                Files.write(file, Arrays.copyOf(valid, length));
+                assertNull(WorldState.loadWorld(file), "truncated to " + length + " bytes");
+            }
+
+            byte[] badMagic = valid.clone();
+            badMagic[0] ^= 1;
+            Files.write(file, badMagic);
+            assertNull(WorldState.loadWorld(file), "bad magic");
+
+            byte[] badVersion = valid.clone();
+            badVersion[5] = 99;
+            Files.write(file, badVersion);
+            assertNull(WorldState.loadWorld(file), "unknown version");
+
+            // a world far larger than the data could describe must not be allocated
+            ByteBuffer huge = ByteBuffer.wrap(valid.clone());
+            huge.putInt(14, 46340);
+            huge.putInt(18, 46340);
+            Files.write(file, huge.array());
+            assertNull(WorldState.loadWorld(file), "huge world size");
+
+            // flipping any single byte must never throw; it either loads or is rejected
+            for (int i = 0; i < valid.length; i++) {
+                byte[] flipped = valid.clone();
+                flipped[i] ^= (byte) 0xA5;
+                Files.write(file, flipped);
+                WorldState.loadWorld(file);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void malformedGridAndExploredDataAreRejected() {
+        ByteBuffer encoded = encode(new WorldState(1, Tileset.HEART, "Beach").getGrid());
+        byte[] valid = Arrays.copyOf(encoded.array(), encoded.limit());
+
+        // a palette of no tiles
+        assertThrows(IllegalArgumentException.class, () -> TileGrid.readFrom(ByteBuffer.wrap(new byte[] {0}), 4, 4));
+        // the grid's data read as a grid with fewer positions has runs that run past its end
+        assertThrows(IllegalArgumentException.class, () -> TileGrid.readFrom(ByteBuffer.wrap(valid), 10, 10));
+        assertThrows(BufferUnderflowException.class,
+                () -> TileGrid.readFrom(ByteBuffer.wrap(Arrays.copyOf(valid, valid.length - 1)), 60, 45));
+        // with three tiles the index takes two bits, so packed value 3 is one position of tile 3
+        ByteBuffer outOfPalette = ByteBuffer.allocate(64);
+        VarInts.put(outOfPalette, 3);
+        writeTile(outOfPalette, Tileset.WALL);
+        writeTile(outOfPalette, Tileset.FLOOR);
+        writeTile(outOfPalette, Tileset.SAND);
+        VarInts.put(outOfPalette, 3);
+        outOfPalette.flip();
+        assertThrows(IllegalArgumentException.class, () -> TileGrid.readFrom(outOfPalette, 1, 1));
+
+        ByteBuffer tooLong = ByteBuffer.allocate(8);
+        VarInts.put(tooLong, 0);
+        VarInts.put(tooLong, 17);
+        tooLong.flip();
+        assertThrows(IllegalArgumentException.class, () -> ExploredMap.readFrom(tooLong, 4, 4));
+        ByteBuffer tooShort = ByteBuffer.allocate(8);
+        VarInts.put(tooShort, 3);
+        VarInts.put(tooShort, 5);
+        tooShort.flip();
+        assertThrows(BufferUnderflowException.class, () -> ExploredMap.readFrom(tooShort, 4, 4));
+    }
+
+    private static TileGrid roundTrip(TileGrid grid) {
+        ByteBuffer buffer = encode(grid);
+        TileGrid read = TileGrid.readFrom(buffer, grid.width(), grid.height());
+        assertFalse(buffer.hasRemaining(), "bytes left over after reading the grid");
+        return read;
+    }
+
+    /** Writes the palette entry of the given tile, taken from the encoding of a grid of just that tile */
+    private static void writeTile(ByteBuffer out, TETile tile) {
+        // skip the one-byte palette size; the 12 bytes after it are the tile
+        out.put(encode(new TileGrid(1, 1, tile)).array(), 1, 12);
+    }
+
+    private static ByteBuffer encode(TileGrid grid) {
+        ByteBuffer buffer = ByteBuffer.allocate(grid.maxEncodedSize());
+        grid.writeTo(buffer);
+        return buffer.flip();
+    }
+
+    /** Returns a game after some random moves, with line of sight on and the seen tiles explored */
+    private static WorldState playedGame(long seed, String pack, Random random) {
+        WorldState game = new WorldState(seed, Tileset.HEART, pack);
+        game.placeAvatar();
+        game.toggleLineOfSight();
+        FieldOfView view = new FieldOfView(6);
+        for (char key : randomMoves(random, 60).toCharArray()) {
+            game.move(key);
+            if (view.update(game.getGrid(), game.getAvatar().getX(), game.getAvatar().getY())) {
+                game.getExplored().reveal(view);
+            }
+        }
+        return game;
+    }
+
+    private static String randomMoves(Random random, int length) {
+        StringBuilder moves = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            moves.append("WASD".charAt(random.nextInt(4)));
+        }
+        return moves.toString();
+    }
+
+    private static void assertSameGame(WorldState expected, WorldState actual, String message) {
+        assertEquals(expected.getSeed(), actual.getSeed(), message);
+        assertEquals(expected.isLineOfSight(), actual.isLineOfSight(), message);
+        assertEquals(expected.getAvatar().getX(), actual.getAvatar().getX(), message);
+        assertEquals(expected.getAvatar().getY(), actual.getAvatar().getY(), message);
+        assertSame(expected.getAvatar().getCharacter(), actual.getAvatar().getCharacter(), message);
+        assertSame(expected.getAvatar().getPreviousTile(), actual.getAvatar().getPreviousTile(), message);
+        assertSameTiles(expected.getGrid(), actual.getGrid(), message);
+        for (int x = 0; x < expected.getGrid().width(); x++) {
+            for (int y = 0; y < expected.getGrid().height(); y++) {
+                assertEquals(expected.getExplored().isExplored(x, y), actual.getExplored().isExplored(x, y),
+                        message + " explored at " + x + ", " + y);
+            }
+        }
+    }
+
+    private static void assertSameTiles(TileGrid expected, TileGrid actual, String message) {
+        assertEquals(expected.width(), actual.width(), message);
+        assertEquals(expected.height(), actual.height(), message);
+        for (int x = 0; x < expected.width(); x++) {
+            for (int y = 0; y < expected.height(); y++) {
+                assertSame(expected.get(x, y), actual.get(x, y), message + " at " + x + ", " + y);
+            }
+        }
+    }
+}